@@ -0,0 +1,165 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * AhoCorasick is an automaton that finds all the occurrences of a set of keys in a text in a single
+ * pass. Keys are numbered in the order they were given.
+ * <p>
+ * The transitions of each state are stored in sorted arrays and found by binary search. Every state
+ * has a failure link to the state of its longest proper suffix that is also a prefix of some key,
+ * and an output link to the next state along the failure links that ends a key.
+ * <p>
+ * To scan a text, start at ROOT and for every character call next. Then visit the keys that end at
+ * the new state: keyAt(state) if it's not -1, and those of the chain of outputLink.
+ */
+final class AhoCorasick {
+    static final int ROOT = 0;
+
+    /**
+     * Transitions of state i are transitionChars[j] -> transitionTargets[j] for j in
+     * [firstTransition[i], firstTransition[i + 1]).
+     */
+    private final int[] firstTransition;
+    private final char[] transitionChars;
+    private final int[] transitionTargets;
+    private final int[] failure;
+    private final int[] outputLink;
+    private final int[] keyAt;
+
+    private AhoCorasick(int[] firstTransition, char[] transitionChars, int[] transitionTargets,
+                        int[] failure, int[] outputLink, int[] keyAt) {
+        this.firstTransition = firstTransition;
+        this.transitionChars = transitionChars;
+        this.transitionTargets = transitionTargets;
+        this.failure = failure;
+        this.outputLink = outputLink;
+        this.keyAt = keyAt;
+    }
+
+    /**
+     * Returns an automaton for the keys. Keys must be distinct and not empty.
+     *
+     * @throws IllegalArgumentException if a key is empty or repeated.
+     */
+    static AhoCorasick compile(List<String> keys) {
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> keyOfState = new ArrayList<>();
+        children.add(new TreeMap<>());
+        keyOfState.add(-1);
+
+        for (int k = 0; k < keys.size(); k++) {
+            String key = keys.get(k);
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("empty key");
+            }
+            int state = ROOT;
+            for (int i = 0; i < key.length(); i++) {
+                Integer next = children.get(state).get(key.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(key.charAt(i), next);
+                    children.add(new TreeMap<>());
+                    keyOfState.add(-1);
+                }
+                state = next;
+            }
+            if (keyOfState.get(state) >= 0) {
+                throw new IllegalArgumentException("repeated key: " + key);
+            }
+            keyOfState.set(state, k);
+        }
+
+        int states = children.size();
+        int transitions = states - 1;
+        int[] firstTransition = new int[states + 1];
+        char[] transitionChars = new char[transitions];
+        int[] transitionTargets = new int[transitions];
+        int[] keyAt = new int[states];
+        int t = 0;
+        for (int s = 0; s < states; s++) {
+            firstTransition[s] = t;
+            for (Map.Entry<Character, Integer> entry : children.get(s).entrySet()) {
+                transitionChars[t] = entry.getKey();
+                transitionTargets[t] = entry.getValue();
+                t++;
+            }
+            keyAt[s] = keyOfState.get(s);
+        }
+        firstTransition[states] = t;
+
+        // Failure and output links are computed breadth first, so the links of shorter prefixes are
+        // known when they are needed.
+        AhoCorasick automaton = new AhoCorasick(firstTransition, transitionChars, transitionTargets,
+                new int[states], new int[states], keyAt);
+        automaton.outputLink[ROOT] = -1;
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = firstTransition[state]; i < firstTransition[state + 1]; i++) {
+                int target = transitionTargets[i];
+                int fail = ROOT;
+                if (state != ROOT) {
+                    fail = automaton.next(automaton.failure[state], transitionChars[i]);
+                }
+                automaton.failure[target] = fail;
+                automaton.outputLink[target] = keyAt[fail] >= 0 ? fail : automaton.outputLink[fail];
+                queue[tail++] = target;
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Returns the state reached from state by reading the character, following failure links if needed.
+     */
+    int next(int state, char c) {
+        while (true) {
+            int target = transition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Returns the key that ends at the state, or -1 if there is none.
+     */
+    int keyAt(int state) {
+        return keyAt[state];
+    }
+
+    /**
+     * Returns the next state along the failure links that ends a key, or -1 if there is none.
+     */
+    int outputLink(int state) {
+        return outputLink[state];
+    }
+
+    private int transition(int state, char c) {
+        int lo = firstTransition[state];
+        int hi = firstTransition[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char midChar = transitionChars[mid];
+            if (midChar < c) {
+                lo = mid + 1;
+            } else if (midChar > c) {
+                hi = mid - 1;
+            } else {
+                return transitionTargets[mid];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,215 @@
+package com.anthonynsimon.url;
+
+import java.util.Arrays;
+
+/**
+ * CacheKeyBuilder produces canonical cache keys from URLs. Query parameters are filtered using
+ * an allowlist or a denylist, sorted by name and written together with the scheme, host and path.
+ * The fragment is never part of the key. Opaque URLs ('mailto:someone@example.com') keep their opaque part.
+ * <p>
+ * For example, with deny("fbclid") and denyPrefix("utm_"):
+ * <p>
+ * http://example.com/a?b=2{@literal &}utm_source=x{@literal &}a=1#top == http://example.com/a?a=1{@literal &}b=2
+ * <p>
+ * The query is scanned once and parameters are tracked as offsets, so no strings are created per parameter.
+ * Instances reuse their internal buffers and are therefore not thread-safe, use one per thread.
+ */
+public final class CacheKeyBuilder {
+    private String[] allowedNames = new String[0];
+    private String[] deniedNames = new String[0];
+    private String[] deniedPrefixes = new String[0];
+
+    /**
+     * Reusable offsets of the kept parameters, each one spanning [start, nameEnd, end).
+     */
+    private int[] starts = new int[16];
+    private int[] nameEnds = new int[16];
+    private int[] ends = new int[16];
+
+    /**
+     * Reusable buffer the key is written into.
+     */
+    private final StringBuilder buffer = new StringBuilder(128);
+
+    /**
+     * Keeps only the parameters with the provided name (and any other allowed ones).
+     * Once a name has been allowed, every parameter that was not allowed is dropped.
+     */
+    public CacheKeyBuilder allow(String name) {
+        allowedNames = append(allowedNames, name);
+        return this;
+    }
+
+    /**
+     * Drops the parameters with the provided name.
+     */
+    public CacheKeyBuilder deny(String name) {
+        deniedNames = append(deniedNames, name);
+        return this;
+    }
+
+    /**
+     * Drops the parameters whose name starts with the provided prefix (i.e. 'utm_').
+     */
+    public CacheKeyBuilder denyPrefix(String prefix) {
+        deniedPrefixes = append(deniedPrefixes, prefix);
+        return this;
+    }
+
+    /**
+     * Returns the cache key of the provided URL.
+     */
+    public String build(URL url) {
+        buffer.setLength(0);
+        appendTo(url, buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Appends the cache key of the provided URL to the provided StringBuilder and returns it.
+     */
+    public StringBuilder appendTo(URL url, StringBuilder sb) {
+        String scheme = url.getScheme();
+        String opaque = url.getOpaque();
+        if (opaque != null) {
+            if (scheme != null) {
+                sb.append(scheme).append(':');
+            }
+            sb.append(opaque);
+        } else {
+            if (scheme != null) {
+                sb.append(scheme).append("://");
+            }
+            if (url.getHost() != null) {
+                sb.append(url.getHost());
+            }
+            String path = url.getRawPath() != null ? url.getRawPath() : url.getPath();
+            if (path != null) {
+                if (path.charAt(0) != '/' && url.getHost() != null) {
+                    sb.append('/');
+                }
+                sb.append(path);
+            }
+        }
+
+        String query = url.getQuery();
+        if (query == null || "?".equals(query)) {
+            return sb;
+        }
+        int count = collect(query);
+        sort(query, count);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? '?' : '&');
+            sb.append(query, starts[i], ends[i]);
+        }
+        return sb;
+    }
+
+    /**
+     * Scans the query once and records the offsets of the parameters that should be kept.
+     * Returns the number of kept parameters.
+     */
+    private int collect(String query) {
+        int count = 0;
+        int len = query.length();
+        int start = 0;
+        while (start < len) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = len;
+            }
+            int nameEnd = query.indexOf('=', start);
+            if (nameEnd < 0 || nameEnd > end) {
+                nameEnd = end;
+            }
+            if (nameEnd > start && isKept(query, start, nameEnd)) {
+                if (count == starts.length) {
+                    grow();
+                }
+                starts[count] = start;
+                nameEnds[count] = nameEnd;
+                ends[count] = end;
+                count++;
+            }
+            start = end + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if the parameter name found in query[start, end) passes the allow and deny rules.
+     */
+    private boolean isKept(String query, int start, int end) {
+        int len = end - start;
+        if (allowedNames.length > 0) {
+            for (String name : allowedNames) {
+                if (name.length() == len && query.regionMatches(start, name, 0, len)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (String name : deniedNames) {
+            if (name.length() == len && query.regionMatches(start, name, 0, len)) {
+                return false;
+            }
+        }
+        for (String prefix : deniedPrefixes) {
+            if (prefix.length() <= len && query.regionMatches(start, prefix, 0, prefix.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the kept parameters by name. Insertion sort is stable, so repeated names keep their order.
+     */
+    private void sort(String query, int count) {
+        for (int i = 1; i < count; i++) {
+            int start = starts[i];
+            int nameEnd = nameEnds[i];
+            int end = ends[i];
+            int j = i - 1;
+            while (j >= 0 && compareNames(query, starts[j], nameEnds[j], start, nameEnd) > 0) {
+                starts[j + 1] = starts[j];
+                nameEnds[j + 1] = nameEnds[j];
+                ends[j + 1] = ends[j];
+                j--;
+            }
+            starts[j + 1] = start;
+            nameEnds[j + 1] = nameEnd;
+            ends[j + 1] = end;
+        }
+    }
+
+    private static int compareNames(String str, int startA, int endA, int startB, int endB) {
+        int lenA = endA - startA;
+        int lenB = endB - startB;
+        int min = Math.min(lenA, lenB);
+        for (int i = 0; i < min; i++) {
+            char a = str.charAt(startA + i);
+            char b = str.charAt(startB + i);
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return lenA - lenB;
+    }
+
+    private void grow() {
+        int size = starts.length * 2;
+        starts = Arrays.copyOf(starts, size);
+        nameEnds = Arrays.copyOf(nameEnds, size);
+        ends = Arrays.copyOf(ends, size);
+    }
+
+    private static String[] append(String[] array, String value) {
+        if (value == null || value.isEmpty()) {
+            return array;
+        }
+        String[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+}
@@ -0,0 +1,338 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * CrawlFrontier holds the URLs waiting to be crawled, queued per host so that each host is fetched
+ * politely: one URL at a time, with a delay between the end of a fetch and the start of the next.
+ * <p>
+ * For example, each fetcher thread runs:
+ * <p>
+ * URL url = frontier.poll(1, TimeUnit.SECONDS);
+ * fetch(url);
+ * frontier.release(url);
+ * <p>
+ * Hosts are keyed by the Origin of their URLs, or by their registrable domain so that all the
+ * subdomains of a site share a queue. Keys are taken from the parsed URL without building strings.
+ * <p>
+ * Hosts are split between striped shards, each with its own lock, map of FIFO queues and heap of the
+ * times hosts may next be fetched. Fetchers start at a random shard and skip the ones that are
+ * locked, so they rarely wait on each other. The frontier is safe to use from multiple threads.
+ */
+public final class CrawlFrontier {
+    private static final int DEFAULT_SHARDS = 64;
+
+    private static final int MODE_ORIGIN = 0;
+    private static final int MODE_REGISTRABLE_DOMAIN = 1;
+
+    /**
+     * Per-thread holder of the earliest time a host becomes ready, filled in by polls.
+     */
+    private static final ThreadLocal<long[]> NEXT_READY = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final int mode;
+    private final long delayNanos;
+    private final LongSupplier clock;
+    private final Shard[] shards;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Fetchers that found nothing to poll register as waiters and park on the monitor until the
+     * version changes or their next host is ready. Adding or releasing a URL only touches the
+     * monitor when there are waiters, and then wakes a single one of them.
+     */
+    private final Object monitor = new Object();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private volatile long version;
+
+    CrawlFrontier(int mode, long delayMillis, int shardCount, LongSupplier clock) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("delay must not be negative");
+        }
+        if (shardCount <= 0 || shardCount > Long.SIZE || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("shard count must be a power of two up to 64");
+        }
+        this.mode = mode;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.clock = clock;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Returns a frontier that queues URLs by origin and waits delayMillis between fetches of the same
+     * origin.
+     */
+    public static CrawlFrontier byOrigin(long delayMillis) {
+        return new CrawlFrontier(MODE_ORIGIN, delayMillis, DEFAULT_SHARDS, System::nanoTime);
+    }
+
+    /**
+     * Returns a frontier that queues URLs by registrable domain, or by hostname for hosts without
+     * one, and waits delayMillis between fetches of the same domain.
+     */
+    public static CrawlFrontier byRegistrableDomain(long delayMillis) {
+        return new CrawlFrontier(MODE_REGISTRABLE_DOMAIN, delayMillis, DEFAULT_SHARDS, System::nanoTime);
+    }
+
+    /**
+     * Queues the URL at the end of the queue of its host.
+     *
+     * @throws IllegalArgumentException if the URL has no scheme or host.
+     */
+    public void add(URL url) {
+        Object key = keyOf(url);
+        Shard shard = shardOf(key);
+        shard.lock.lock();
+        try {
+            Host host = shard.hosts.get(key);
+            if (host == null) {
+                host = new Host(key);
+                host.nextFetch = clock.getAsLong();
+                shard.hosts.put(key, host);
+                shard.schedule.add(host);
+            }
+            host.urls.add(url);
+        } finally {
+            shard.lock.unlock();
+        }
+        size.increment();
+        signal();
+    }
+
+    /**
+     * Returns the next URL of a host that may be fetched now, or null if there is none. The host is
+     * not handed out again until the URL is released.
+     */
+    public URL poll() {
+        return poll(null);
+    }
+
+    /**
+     * Returns the next URL of a host that may be fetched, waiting up to the timeout for one to be
+     * ready, or null if there was none.
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public URL poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = clock.getAsLong() + unit.toNanos(timeout);
+        long[] nextReady = NEXT_READY.get();
+        nextReady[0] = deadline;
+        URL url = poll(nextReady);
+        if (url != null) {
+            return url;
+        }
+
+        // Register before polling again, so that URLs added after this poll signal the monitor.
+        waiters.incrementAndGet();
+        try {
+            boolean waited = false;
+            while (true) {
+                long seen = version;
+                nextReady[0] = deadline;
+                url = poll(nextReady);
+                if (url != null) {
+                    // A single waiter is woken per signal, pass it on in case more URLs are ready.
+                    if (waited && size.sum() > 0) {
+                        signal();
+                    }
+                    return url;
+                }
+                long now = clock.getAsLong();
+                if (deadline - now <= 0) {
+                    return null;
+                }
+                long wait = nextReady[0] - now;
+                synchronized (monitor) {
+                    if (version == seen && wait > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(monitor, wait);
+                    }
+                }
+                waited = true;
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Marks the fetch of the URL as done, so its host may be fetched again after the delay.
+     *
+     * @throws IllegalStateException if the host of the URL wasn't being fetched.
+     */
+    public void release(URL url) {
+        release(url, -1);
+    }
+
+    /**
+     * Marks the fetch of the URL as done, so its host may be fetched again after delayMillis instead
+     * of the default delay, as when robots.txt asks for a Crawl-delay.
+     *
+     * @throws IllegalStateException if the host of the URL wasn't being fetched.
+     */
+    public void release(URL url, long delayMillis) {
+        Object key = keyOf(url);
+        Shard shard = shardOf(key);
+        long delay = delayMillis >= 0 ? TimeUnit.MILLISECONDS.toNanos(delayMillis) : delayNanos;
+        shard.lock.lock();
+        try {
+            Host host = shard.hosts.get(key);
+            if (host == null || !host.fetching) {
+                throw new IllegalStateException("host is not being fetched: " + key);
+            }
+            host.fetching = false;
+            host.nextFetch = clock.getAsLong() + delay;
+            // Hosts with no URLs are also scheduled, so that they are only forgotten once the delay
+            // has passed and URLs added meanwhile still wait for it.
+            shard.schedule.add(host);
+        } finally {
+            shard.lock.unlock();
+        }
+        signal();
+    }
+
+    /**
+     * Returns the number of queued URLs, not counting the ones being fetched.
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Returns the number of hosts that have queued URLs, are being fetched or are waiting for their
+     * delay to pass.
+     */
+    public int hostCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                count += shard.hosts.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Takes a ready URL from the shards, starting at a random one. Locked shards are skipped at first
+     * and waited for once the others have been tried. If nextReady is not null, it's lowered to the
+     * earliest time a host of the visited shards becomes ready.
+     */
+    private URL poll(long[] nextReady) {
+        int mask = shards.length - 1;
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        long skipped = 0;
+        for (int i = 0; i < shards.length; i++) {
+            int index = (start + i) & mask;
+            Shard shard = shards[index];
+            if (!shard.lock.tryLock()) {
+                skipped |= 1L << index;
+                continue;
+            }
+            URL url = shard.poll(clock.getAsLong(), nextReady);
+            if (url != null) {
+                return url;
+            }
+        }
+        while (skipped != 0) {
+            int index = Long.numberOfTrailingZeros(skipped);
+            skipped &= skipped - 1;
+            Shard shard = shards[index];
+            shard.lock.lock();
+            URL url = shard.poll(clock.getAsLong(), nextReady);
+            if (url != null) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    private void signal() {
+        if (waiters.get() > 0) {
+            synchronized (monitor) {
+                version++;
+                monitor.notify();
+            }
+        }
+    }
+
+    private Object keyOf(URL url) {
+        Origin origin = url.getOrigin();
+        if (origin == null) {
+            throw new IllegalArgumentException("url has no scheme or host: " + url);
+        }
+        if (mode == MODE_ORIGIN) {
+            return origin;
+        }
+        String domain = url.getRegistrableDomain();
+        return domain != null ? domain : origin.getHost();
+    }
+
+    private Shard shardOf(Object key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ hash >>> 16) & (shards.length - 1)];
+    }
+
+    /**
+     * Shard holds the hosts whose keys hash to it. Hosts that are not being fetched are in the
+     * schedule, ordered by the time they may be fetched next.
+     */
+    private final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Object, Host> hosts = new HashMap<>();
+        private final PriorityQueue<Host> schedule = new PriorityQueue<>(
+                (a, b) -> Long.compare(a.nextFetch - b.nextFetch, 0));
+
+        /**
+         * Takes the next URL of the first ready host and unlocks the shard.
+         */
+        private URL poll(long now, long[] nextReady) {
+            try {
+                Host host;
+                while ((host = schedule.peek()) != null && host.nextFetch - now <= 0) {
+                    schedule.poll();
+                    if (host.urls.isEmpty()) {
+                        hosts.remove(host.key);
+                        continue;
+                    }
+                    host.fetching = true;
+                    size.decrement();
+                    return host.urls.poll();
+                }
+                if (host != null && nextReady != null && host.nextFetch - nextReady[0] < 0) {
+                    nextReady[0] = host.nextFetch;
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Host is the queue of URLs of a host and its politeness state.
+     */
+    private static final class Host {
+        private final Object key;
+        private final ArrayDeque<URL> urls = new ArrayDeque<>();
+        private long nextFetch;
+        private boolean fetching;
+
+        private Host(Object key) {
+            this.key = key;
+        }
+    }
+}
@@ -35,7 +35,7 @@ final class DefaultURLParser implements URLParser {
         }
 
         index = remaining.indexOf('?');
-        if (index > 0) {
+        if (index >= 0) {
             String query = remaining.substring(index + 1, remaining.length());
             if (query.isEmpty()) {
                 builder.setQuery("?");
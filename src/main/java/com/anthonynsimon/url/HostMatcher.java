@@ -0,0 +1,523 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HostMatcher checks hosts against a set of rules, as used for blocklists and allowlists. Rules are:
+ * <p>
+ * 'example.com' matches that host only.
+ * '*.example.com' matches the subdomains of example.com, but not example.com itself.
+ * '.example.com' matches example.com and its subdomains.
+ * '192.168.0.1' or '10.0.0.0/8' matches an IPv4 address or network.
+ * '::1', '[::1]' or '2001:db8::/32' matches an IPv6 address or network.
+ * <p>
+ * Domain rules are compiled into a LabelTrie and matched by walking the labels of the host from right
+ * to left, ignoring the case of ASCII letters. IP rules are merged into sorted ranges and matched by
+ * binary search. Matching doesn't allocate.
+ * <p>
+ * A HostMatcher is immutable and can be shared between threads. To update the rules of a running
+ * system, build a new matcher and swap it into a HostMatcher.Live.
+ */
+public final class HostMatcher {
+    private static final byte EXACT = 1;
+    private static final byte SUBDOMAINS = 2;
+
+    private final LabelTrie domains;
+    private final int ruleCount;
+
+    /**
+     * Sorted, non-overlapping IPv4 ranges.
+     */
+    private final long[] ipv4Start;
+    private final long[] ipv4End;
+
+    /**
+     * Sorted, non-overlapping IPv6 ranges, as the high and low 64 bits of the addresses.
+     */
+    private final long[] ipv6StartHigh;
+    private final long[] ipv6StartLow;
+    private final long[] ipv6EndHigh;
+    private final long[] ipv6EndLow;
+
+    private HostMatcher(Builder builder) {
+        this.domains = LabelTrie.compile(builder.domains, builder.domainFlags, builder.domainCount);
+        this.ruleCount = builder.ruleCount;
+
+        long[][] ipv4 = mergeRanges(builder.ipv4Ranges, 1);
+        this.ipv4Start = ipv4[0];
+        this.ipv4End = ipv4[1];
+        long[][] ipv6 = mergeRanges(builder.ipv6Ranges, 2);
+        this.ipv6StartHigh = ipv6[0];
+        this.ipv6StartLow = ipv6[1];
+        this.ipv6EndHigh = ipv6[2];
+        this.ipv6EndLow = ipv6[3];
+    }
+
+    /**
+     * Returns true if the hostname of the URL matches any rule. URLs without a hostname never match.
+     */
+    public boolean matches(URL url) {
+        String hostname = url.getHostname();
+        return hostname != null && matches(hostname, 0, hostname.length());
+    }
+
+    /**
+     * Returns true if the host matches any rule.
+     */
+    public boolean matches(CharSequence host) {
+        return matches(host, 0, host.length());
+    }
+
+    /**
+     * Returns true if host[start, end) matches any rule. A single trailing dot of the host is ignored.
+     */
+    public boolean matches(CharSequence host, int start, int end) {
+        if (end > start && host.charAt(end - 1) == '.') {
+            end--;
+        }
+        if (start >= end) {
+            return false;
+        }
+        if (host.charAt(start) == '[') {
+            if (host.charAt(end - 1) != ']') {
+                return false;
+            }
+            return matchesIPv6(host, start + 1, end - 1);
+        }
+        if (isIPv4(host, start, end)) {
+            long address = parseIPv4(host, start, end);
+            return address >= 0 && matchesIPv4(address);
+        }
+        if (indexOf(host, ':', start, end) >= 0) {
+            return matchesIPv6(host, start, end);
+        }
+        return matchesDomain(host, start, end);
+    }
+
+    /**
+     * Returns the number of rules of the matcher.
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    private boolean matchesDomain(CharSequence host, int start, int end) {
+        int node = LabelTrie.ROOT;
+        int labelEnd = end;
+        while (true) {
+            int labelStart = lastIndexOf(host, '.', start, labelEnd) + 1;
+            if (labelStart == labelEnd) {
+                return false;
+            }
+            node = domains.findChild(node, host, labelStart, labelEnd);
+            if (node < 0) {
+                return false;
+            }
+            if (labelStart == start) {
+                return (domains.flags(node) & EXACT) != 0;
+            }
+            if ((domains.flags(node) & SUBDOMAINS) != 0) {
+                return true;
+            }
+            labelEnd = labelStart - 1;
+        }
+    }
+
+    private boolean matchesIPv4(long address) {
+        int i = floorIndex(ipv4Start, address);
+        return i >= 0 && address <= ipv4End[i];
+    }
+
+    private boolean matchesIPv6(CharSequence host, int start, int end) {
+        if (!isIPv6(host, start, end)) {
+            return false;
+        }
+        long high = parseIPv6(host, start, end, true);
+        long low = parseIPv6(host, start, end, false);
+
+        // Index of the last range that starts at or before the address.
+        int lo = 0;
+        int hi = ipv6StartHigh.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare128(ipv6StartHigh[mid], ipv6StartLow[mid], high, low) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && compare128(high, low, ipv6EndHigh[found], ipv6EndLow[found]) <= 0;
+    }
+
+    /**
+     * Returns the index of the greatest value of the sorted array that is at most key, or -1.
+     */
+    private static int floorIndex(long[] sorted, long key) {
+        int i = Arrays.binarySearch(sorted, key);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private static int compare128(long highA, long lowA, long highB, long lowB) {
+        int cmp = Long.compareUnsigned(highA, highB);
+        return cmp != 0 ? cmp : Long.compareUnsigned(lowA, lowB);
+    }
+
+    /**
+     * Returns the ranges sorted and merged, as arrays of starts and ends. Each range is made of
+     * words longs for its start followed by words longs for its end, compared as unsigned.
+     */
+    private static long[][] mergeRanges(List<long[]> ranges, int words) {
+        List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> {
+            for (int i = 0; i < words; i++) {
+                int cmp = Long.compareUnsigned(a[i], b[i]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        });
+
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : sorted) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && startsBeforeEndOf(range, last, words)) {
+                if (compareWords(range, words, last, words, words) > 0) {
+                    System.arraycopy(range, words, last, words, words);
+                }
+            } else {
+                merged.add(range.clone());
+            }
+        }
+
+        long[][] result = new long[words * 2][merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            for (int w = 0; w < words * 2; w++) {
+                result[w][i] = merged.get(i)[w];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if range starts at most one address after the end of last, so they can be merged.
+     */
+    private static boolean startsBeforeEndOf(long[] range, long[] last, int words) {
+        if (compareWords(range, 0, last, words, words) <= 0) {
+            return true;
+        }
+        // Adjacent ranges are merged as well: range start == last end + 1.
+        long[] next = Arrays.copyOfRange(last, words, words * 2);
+        for (int i = words - 1; i >= 0; i--) {
+            if (++next[i] != 0) {
+                return compareWords(range, 0, next, 0, words) == 0;
+            }
+        }
+        return false;
+    }
+
+    private static int compareWords(long[] a, int fromA, long[] b, int fromB, int words) {
+        for (int i = 0; i < words; i++) {
+            int cmp = Long.compareUnsigned(a[fromA + i], b[fromB + i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isIPv4(CharSequence str, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the IPv4 address of str[start, end) as an unsigned 32-bit value, or -1 if it is not valid.
+     */
+    private static long parseIPv4(CharSequence str, int start, int end) {
+        long address = 0;
+        int parts = 0;
+        int i = start;
+        while (i <= end) {
+            int value = 0;
+            int digits = 0;
+            while (i < end && str.charAt(i) != '.') {
+                value = value * 10 + str.charAt(i) - '0';
+                if (++digits > 3) {
+                    return -1;
+                }
+                i++;
+            }
+            if (digits == 0 || value > 255 || ++parts > 4) {
+                return -1;
+            }
+            address = address << 8 | value;
+            i++;
+        }
+        return parts == 4 ? address : -1;
+    }
+
+    /**
+     * Returns true if str[start, end) is made of up to 8 groups of 1 to 4 hex digits separated by
+     * colons, with at most one '::' that stands for the missing groups.
+     */
+    private static boolean isIPv6(CharSequence str, int start, int end) {
+        int groups = 0;
+        int digits = 0;
+        boolean compressed = false;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c == ':') {
+                if (i + 1 < end && str.charAt(i + 1) == ':') {
+                    if (compressed) {
+                        return false;
+                    }
+                    compressed = true;
+                    if (digits > 0) {
+                        groups++;
+                    }
+                    digits = 0;
+                    i++;
+                    continue;
+                }
+                if (digits == 0 || i + 1 == end) {
+                    return false;
+                }
+                groups++;
+                digits = 0;
+            } else if (Character.digit(c, 16) >= 0 && c < 128) {
+                if (++digits > 4) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (digits > 0) {
+            groups++;
+        }
+        return compressed ? groups < 8 : groups == 8;
+    }
+
+    /**
+     * Returns the high or low 64 bits of the IPv6 address of str[start, end), which must be valid.
+     */
+    private static long parseIPv6(CharSequence str, int start, int end, boolean highBits) {
+        int groups = 0;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c != ':' && (i == start || str.charAt(i - 1) == ':')) {
+                groups++;
+            }
+        }
+
+        long high = 0;
+        long low = 0;
+        int i = start;
+        while (i < end) {
+            if (str.charAt(i) == ':') {
+                if (i + 1 < end && str.charAt(i + 1) == ':') {
+                    for (int g = groups; g < 8; g++) {
+                        high = high << 16 | low >>> 48;
+                        low = low << 16;
+                    }
+                    i += 2;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+            int value = 0;
+            while (i < end && str.charAt(i) != ':') {
+                value = value << 4 | Character.digit(str.charAt(i), 16);
+                i++;
+            }
+            high = high << 16 | low >>> 48;
+            low = low << 16 | value;
+        }
+        return highBits ? high : low;
+    }
+
+    private static int indexOf(CharSequence str, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (str.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(CharSequence str, char c, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (str.charAt(i) == c) {
+                return i;
+            }
+        }
+        return start - 1;
+    }
+
+    /**
+     * Builder collects the rules of a HostMatcher.
+     */
+    public static final class Builder {
+        private String[] domains = new String[16];
+        private byte[] domainFlags = new byte[16];
+        private int domainCount;
+        private final List<long[]> ipv4Ranges = new ArrayList<>();
+        private final List<long[]> ipv6Ranges = new ArrayList<>();
+        private int ruleCount;
+
+        /**
+         * Adds a rule to the matcher.
+         *
+         * @throws IllegalArgumentException if the rule is not valid.
+         */
+        public Builder add(String rule) {
+            String trimmed = rule.trim();
+            if (trimmed.isEmpty()) {
+                throw new IllegalArgumentException("empty host rule");
+            }
+            int slash = trimmed.indexOf('/');
+            String address = slash >= 0 ? trimmed.substring(0, slash) : trimmed;
+            if (address.startsWith("[") && address.endsWith("]")) {
+                address = address.substring(1, address.length() - 1);
+            }
+
+            if (isIPv4(address, 0, address.length())) {
+                long value = parseIPv4(address, 0, address.length());
+                if (value < 0) {
+                    throw new IllegalArgumentException("invalid ipv4 address: " + rule);
+                }
+                int prefix = prefixLength(trimmed, slash, 32);
+                long mask = prefix == 0 ? 0 : 0xFFFFFFFFL << (32 - prefix) & 0xFFFFFFFFL;
+                ipv4Ranges.add(new long[]{value & mask, value | ~mask & 0xFFFFFFFFL});
+            } else if (address.indexOf(':') >= 0) {
+                if (!isIPv6(address, 0, address.length())) {
+                    throw new IllegalArgumentException("invalid ipv6 address: " + rule);
+                }
+                long high = parseIPv6(address, 0, address.length(), true);
+                long low = parseIPv6(address, 0, address.length(), false);
+                int prefix = prefixLength(trimmed, slash, 128);
+                long highMask = prefix >= 64 ? -1L : prefix == 0 ? 0 : -1L << (64 - prefix);
+                long lowMask = prefix <= 64 ? 0 : prefix == 128 ? -1L : -1L << (128 - prefix);
+                ipv6Ranges.add(new long[]{high & highMask, low & lowMask, high | ~highMask, low | ~lowMask});
+            } else if (slash >= 0) {
+                throw new IllegalArgumentException("network prefix on a domain rule: " + rule);
+            } else if (trimmed.startsWith("*.")) {
+                addDomain(trimmed.substring(2), SUBDOMAINS);
+            } else if (trimmed.startsWith(".")) {
+                addDomain(trimmed.substring(1), (byte) (EXACT | SUBDOMAINS));
+            } else {
+                addDomain(trimmed, EXACT);
+            }
+            ruleCount++;
+            return this;
+        }
+
+        /**
+         * Adds every rule to the matcher.
+         *
+         * @throws IllegalArgumentException if a rule is not valid.
+         */
+        public Builder addAll(Iterable<String> rules) {
+            for (String rule : rules) {
+                add(rule);
+            }
+            return this;
+        }
+
+        /**
+         * Returns a matcher of the rules added so far. The builder can keep being used afterwards.
+         *
+         * @throws IllegalArgumentException if a domain rule is not valid.
+         */
+        public HostMatcher build() {
+            return new HostMatcher(this);
+        }
+
+        private void addDomain(String domain, byte flags) {
+            if (domain.endsWith(".")) {
+                domain = domain.substring(0, domain.length() - 1);
+            }
+            if (domainCount == domains.length) {
+                domains = Arrays.copyOf(domains, domainCount * 2);
+                domainFlags = Arrays.copyOf(domainFlags, domainCount * 2);
+            }
+            domains[domainCount] = domain;
+            domainFlags[domainCount] = flags;
+            domainCount++;
+        }
+
+        private static int prefixLength(String rule, int slash, int bits) {
+            if (slash < 0) {
+                return bits;
+            }
+            try {
+                int prefix = Integer.parseInt(rule.substring(slash + 1));
+                if (prefix < 0 || prefix > bits) {
+                    throw new IllegalArgumentException("invalid network prefix: " + rule);
+                }
+                return prefix;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid network prefix: " + rule);
+            }
+        }
+    }
+
+    /**
+     * Live holds the current HostMatcher of a running system. Matching always uses a complete set of
+     * rules: a new matcher is built aside and swapped in at once.
+     */
+    public static final class Live {
+        private volatile HostMatcher current;
+
+        public Live(HostMatcher initial) {
+            if (initial == null) {
+                throw new IllegalArgumentException("matcher must not be null");
+            }
+            this.current = initial;
+        }
+
+        /**
+         * Returns the current matcher.
+         */
+        public HostMatcher get() {
+            return current;
+        }
+
+        /**
+         * Replaces the current matcher and returns the previous one.
+         */
+        public synchronized HostMatcher swap(HostMatcher next) {
+            if (next == null) {
+                throw new IllegalArgumentException("matcher must not be null");
+            }
+            HostMatcher previous = current;
+            current = next;
+            return previous;
+        }
+
+        /**
+         * Returns true if the hostname of the URL matches any rule of the current matcher.
+         */
+        public boolean matches(URL url) {
+            return current.matches(url);
+        }
+
+        /**
+         * Returns true if the host matches any rule of the current matcher.
+         */
+        public boolean matches(CharSequence host) {
+            return current.matches(host);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.anthonynsimon.url;
+
+import java.util.Arrays;
+
+/**
+ * LabelTrie is an immutable trie of domain names keyed by their labels from right to left, so that
+ * 'www.example.com' is stored under 'com', 'example' and 'www'. Every node carries a byte of flags
+ * set by the domains added to it.
+ * <p>
+ * It's stored in arrays: nodes are numbered breadth first so the children of a node are contiguous
+ * and sorted by label, and labels are kept in a single char array. Children are found by binary
+ * search, comparing the labels in place, so lookups don't allocate.
+ */
+final class LabelTrie {
+    static final int ROOT = 0;
+
+    /**
+     * Label of node i is labels[labelStart[i], labelStart[i + 1]). The root has an empty label.
+     */
+    private final char[] labels;
+    private final int[] labelStart;
+
+    /**
+     * Children of node i are the nodes [firstChild[i], firstChild[i + 1]).
+     */
+    private final int[] firstChild;
+    private final byte[] flags;
+
+    private LabelTrie(char[] labels, int[] labelStart, int[] firstChild, byte[] flags) {
+        this.labels = labels;
+        this.labelStart = labelStart;
+        this.firstChild = firstChild;
+        this.flags = flags;
+    }
+
+    /**
+     * Returns a trie of the first count domains, each with the flags at the same index. The flags of
+     * duplicate domains are combined. Domains are lowercased and must not have empty labels.
+     *
+     * @throws IllegalArgumentException if a domain is empty or has an empty label.
+     */
+    static LabelTrie compile(String[] domains, byte[] domainFlags, int count) {
+        // Keys are the labels from right to left separated by '\0', which sorts before any character,
+        // so that sorting the keys sorts the domains label by label.
+        Key[] keys = new Key[count];
+        int labelChars = 0;
+        for (int i = 0; i < count; i++) {
+            String domain = domains[i];
+            if (domain.isEmpty() || domain.charAt(0) == '.' || domain.charAt(domain.length() - 1) == '.'
+                    || domain.contains("..")) {
+                throw new IllegalArgumentException("invalid domain: " + domain);
+            }
+            char[] key = new char[domain.length()];
+            int k = 0;
+            int end = domain.length();
+            while (true) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                for (int j = start; j < end; j++) {
+                    key[k++] = Character.toLowerCase(domain.charAt(j));
+                }
+                if (start == 0) {
+                    break;
+                }
+                key[k++] = '\0';
+                end = start - 1;
+            }
+            keys[i] = new Key(new String(key), domainFlags[i]);
+            labelChars += key.length;
+        }
+        Arrays.sort(keys);
+
+        // Nodes are created breadth first. Each node covers the range of sorted keys that share its
+        // prefix, which is prefixLength characters long for all of them.
+        int capacity = count + 1;
+        int[] rangeStart = new int[capacity];
+        int[] rangeEnd = new int[capacity];
+        int[] prefixLength = new int[capacity];
+        int[] labelStart = new int[capacity + 1];
+        int[] firstChild = new int[capacity + 1];
+        byte[] flags = new byte[capacity];
+        char[] labels = new char[labelChars];
+        rangeEnd[ROOT] = count;
+        int nodes = 1;
+        int labelLength = 0;
+
+        for (int node = 0; node < nodes; node++) {
+            firstChild[node] = nodes;
+            int i = rangeStart[node];
+            int end = rangeEnd[node];
+            int prefix = prefixLength[node];
+            while (i < end && keys[i].key.length() == prefix) {
+                flags[node] |= keys[i].flags;
+                i++;
+            }
+            int labelOffset = prefix == 0 ? 0 : prefix + 1;
+            while (i < end) {
+                String key = keys[i].key;
+                int labelEnd = key.indexOf('\0', labelOffset);
+                if (labelEnd < 0) {
+                    labelEnd = key.length();
+                }
+                int childEnd = i + 1;
+                while (childEnd < end && sameLabel(keys[childEnd].key, key, labelOffset, labelEnd)) {
+                    childEnd++;
+                }
+
+                if (nodes == capacity) {
+                    capacity = capacity * 2;
+                    rangeStart = Arrays.copyOf(rangeStart, capacity);
+                    rangeEnd = Arrays.copyOf(rangeEnd, capacity);
+                    prefixLength = Arrays.copyOf(prefixLength, capacity);
+                    labelStart = Arrays.copyOf(labelStart, capacity + 1);
+                    firstChild = Arrays.copyOf(firstChild, capacity + 1);
+                    flags = Arrays.copyOf(flags, capacity);
+                }
+                rangeStart[nodes] = i;
+                rangeEnd[nodes] = childEnd;
+                prefixLength[nodes] = labelEnd;
+                labelStart[nodes] = labelLength;
+                key.getChars(labelOffset, labelEnd, labels, labelLength);
+                labelLength += labelEnd - labelOffset;
+                nodes++;
+                i = childEnd;
+            }
+        }
+        labelStart[nodes] = labelLength;
+        firstChild[nodes] = nodes;
+
+        return new LabelTrie(
+                Arrays.copyOf(labels, labelLength),
+                Arrays.copyOf(labelStart, nodes + 1),
+                Arrays.copyOf(firstChild, nodes + 1),
+                Arrays.copyOf(flags, nodes));
+    }
+
+    /**
+     * Returns true if the key has exactly the label of other[start, end) at the same position.
+     */
+    private static boolean sameLabel(String key, String other, int start, int end) {
+        return key.length() >= end && key.regionMatches(start, other, start, end - start)
+                && (key.length() == end || key.charAt(end) == '\0');
+    }
+
+    /**
+     * Returns the number of nodes of the trie, including the root.
+     */
+    int size() {
+        return flags.length;
+    }
+
+    /**
+     * Returns the flags of the node.
+     */
+    byte flags(int node) {
+        return flags[node];
+    }
+
+    /**
+     * Returns the child of node with the label str[start, end), or -1 if there is none. ASCII letters
+     * of str are compared ignoring their case.
+     */
+    int findChild(int node, CharSequence str, int start, int end) {
+        int lo = firstChild[node];
+        int hi = firstChild[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareLabel(mid, str, start, end);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the label of the node to str[start, end). Labels are ordered as by String.compareTo.
+     */
+    private int compareLabel(int node, CharSequence str, int start, int end) {
+        int from = labelStart[node];
+        int labelLength = labelStart[node + 1] - from;
+        int len = Math.min(labelLength, end - start);
+        for (int i = 0; i < len; i++) {
+            char a = labels[from + i];
+            char b = str.charAt(start + i);
+            if ('A' <= b && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return labelLength - (end - start);
+    }
+
+    /**
+     * Key is a domain with its labels reversed, and the flags it was added with.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final String key;
+        private final byte flags;
+
+        Key(String key, byte flags) {
+            this.key = key;
+            this.flags = flags;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return key.compareTo(other.key);
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.InvalidURLReferenceException;
+import com.anthonynsimon.url.exceptions.MalformedURLException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * LinkExtractor finds the links of an HTML document and resolves them against the document URL.
+ * <p>
+ * The document is scanned once, character by character, without building a DOM or using regular
+ * expressions. The values of the href, src and action attributes are reported, as well as
+ * 'http://' and 'https://' URLs found in the text (this can be disabled). The first {@literal <base href>}
+ * of the document replaces the document URL as the base for the links that follow it. The contents of
+ * comments and of script and style elements are skipped.
+ * <p>
+ * For example:
+ * <p>
+ * new LinkExtractor(URL.parse("http://example.com/docs/")).extract(html, (url, start, end) {@literal ->} ...);
+ * <p>
+ * Links that can't be parsed or resolved are skipped. An extractor can be reused and shared between
+ * threads, each call to extract keeps its own state.
+ */
+public final class LinkExtractor {
+    private static final int MAX_TEXT_URL_LENGTH = 4096;
+    private static final int MAX_NAME_LENGTH = 16;
+
+    private final URL documentURL;
+    private boolean extractTextURLs = true;
+
+    /**
+     * Listener receives the links found by the extractor.
+     */
+    public interface Listener {
+        /**
+         * Called for every link, with its resolved URL and the [start, end) offsets of the raw link in
+         * the document, counted in characters.
+         */
+        void onLink(URL url, int start, int end);
+    }
+
+    /**
+     * Creates an extractor for documents located at documentURL.
+     *
+     * @throws InvalidURLReferenceException if the document URL is not absolute.
+     */
+    public LinkExtractor(URL documentURL) throws InvalidURLReferenceException {
+        if (documentURL == null || !documentURL.isAbsolute()) {
+            throw new InvalidURLReferenceException("document url is not absolute");
+        }
+        this.documentURL = documentURL;
+    }
+
+    /**
+     * Sets whether URLs found in the text of the document, outside of any tag, are reported.
+     */
+    public LinkExtractor setExtractTextURLs(boolean extractTextURLs) {
+        this.extractTextURLs = extractTextURLs;
+        return this;
+    }
+
+    /**
+     * Reports the links of the document to the listener.
+     */
+    public void extract(CharSequence html, Listener listener) {
+        Scanner scanner = new Scanner(listener);
+        int len = html.length();
+        for (int i = 0; i < len; i++) {
+            scanner.feed(html.charAt(i));
+        }
+        scanner.finish();
+    }
+
+    /**
+     * Reports the links of the document read from the reader to the listener. The reader is not closed.
+     *
+     * @throws IOException if the reader could not be read.
+     */
+    public void extract(Reader reader, Listener listener) throws IOException {
+        Scanner scanner = new Scanner(listener);
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                scanner.feed(buffer[i]);
+            }
+        }
+        scanner.finish();
+    }
+
+    /**
+     * Reports the links of the document read from the stream with the provided charset to the listener.
+     * The stream is not closed.
+     *
+     * @throws IOException if the stream could not be read.
+     */
+    public void extract(InputStream in, Charset charset, Listener listener) throws IOException {
+        extract(new InputStreamReader(in, charset), listener);
+    }
+
+    /**
+     * Returns the string with its character references ('{@literal &amp;}', '{@literal &#39;}'...) decoded.
+     * Unknown references are kept as is.
+     */
+    static String decodeCharacterReferences(CharSequence str) {
+        int len = str.length();
+        StringBuilder sb = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i);
+            int semicolon = -1;
+            if (c == '&') {
+                for (int j = i + 1; j < len && j < i + 10; j++) {
+                    if (str.charAt(j) == ';') {
+                        semicolon = j;
+                        break;
+                    }
+                }
+            }
+            int decoded = semicolon > 0 ? decodeReference(str, i + 1, semicolon) : -1;
+            if (decoded < 0) {
+                sb.append(c);
+                i++;
+            } else {
+                sb.appendCodePoint(decoded);
+                i = semicolon + 1;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the code point of the reference in str[start, end), or -1 if it is not known.
+     */
+    private static int decodeReference(CharSequence str, int start, int end) {
+        String name = str.subSequence(start, end).toString();
+        switch (name) {
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            default:
+                break;
+        }
+        if (name.length() < 2 || name.charAt(0) != '#') {
+            return -1;
+        }
+        try {
+            int codePoint = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+                    ? Integer.parseInt(name.substring(2), 16)
+                    : Integer.parseInt(name.substring(1));
+            return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static char toLowerCase(char c) {
+        return 'A' <= c && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?'
+                || c == ')' || c == ']' || c == '}' || c == '\'' || c == '"';
+    }
+
+    /**
+     * Scanner holds the state of a single extraction. It's a state machine fed one character at a time,
+     * which follows the HTML tokenization rules closely enough to find tags, attributes and text.
+     */
+    private final class Scanner {
+        private static final int TEXT = 0;
+        private static final int TAG_OPEN = 1;
+        private static final int TAG_NAME = 2;
+        private static final int END_TAG = 3;
+        private static final int BEFORE_ATTR_NAME = 4;
+        private static final int ATTR_NAME = 5;
+        private static final int AFTER_ATTR_NAME = 6;
+        private static final int BEFORE_ATTR_VALUE = 7;
+        private static final int ATTR_VALUE_DOUBLE_QUOTED = 8;
+        private static final int ATTR_VALUE_SINGLE_QUOTED = 9;
+        private static final int ATTR_VALUE_UNQUOTED = 10;
+        private static final int MARKUP_DECLARATION = 11;
+        private static final int COMMENT = 12;
+        private static final int BOGUS_COMMENT = 13;
+        private static final int RAW_TEXT = 14;
+
+        private final Listener listener;
+        private URLResolver resolver;
+        private boolean hasBase;
+
+        private int state = TEXT;
+        private int pos = -1;
+        private int dashes;
+
+        private final StringBuilder tagName = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder attrName = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder value = new StringBuilder();
+        private final StringBuilder word = new StringBuilder();
+        private boolean capturing;
+        private int valueStart;
+        private int wordStart;
+        private boolean wordTooLong;
+
+        /**
+         * End tag that closes the current raw text element ('{@literal </script}'), and how much of it matched.
+         */
+        private String rawTextEnd;
+        private int rawTextMatched;
+
+        Scanner(Listener listener) {
+            this.listener = listener;
+            try {
+                this.resolver = new URLResolver(documentURL);
+            } catch (InvalidURLReferenceException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void feed(char c) {
+            pos++;
+            switch (state) {
+                case TEXT:
+                    text(c);
+                    break;
+                case TAG_OPEN:
+                    if (c == '!') {
+                        dashes = 0;
+                        state = MARKUP_DECLARATION;
+                    } else if (c == '/') {
+                        state = END_TAG;
+                    } else if ('a' <= toLowerCase(c) && toLowerCase(c) <= 'z') {
+                        tagName.setLength(0);
+                        tagName.append(toLowerCase(c));
+                        state = TAG_NAME;
+                    } else if (c != '<') {
+                        state = TEXT;
+                        text(c);
+                    }
+                    break;
+                case TAG_NAME:
+                    if (isWhitespace(c) || c == '/') {
+                        state = BEFORE_ATTR_NAME;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (tagName.length() < MAX_NAME_LENGTH) {
+                        tagName.append(toLowerCase(c));
+                    }
+                    break;
+                case END_TAG:
+                case BOGUS_COMMENT:
+                    if (c == '>') {
+                        state = TEXT;
+                    }
+                    break;
+                case BEFORE_ATTR_NAME:
+                    if (c == '>') {
+                        endTag();
+                    } else if (!isWhitespace(c) && c != '/') {
+                        startAttrName(c);
+                    }
+                    break;
+                case ATTR_NAME:
+                    if (isWhitespace(c)) {
+                        state = AFTER_ATTR_NAME;
+                    } else if (c == '=') {
+                        state = BEFORE_ATTR_VALUE;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (c == '/') {
+                        state = BEFORE_ATTR_NAME;
+                    } else if (attrName.length() < MAX_NAME_LENGTH) {
+                        attrName.append(toLowerCase(c));
+                    }
+                    break;
+                case AFTER_ATTR_NAME:
+                    if (c == '=') {
+                        state = BEFORE_ATTR_VALUE;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (c == '/') {
+                        state = BEFORE_ATTR_NAME;
+                    } else if (!isWhitespace(c)) {
+                        startAttrName(c);
+                    }
+                    break;
+                case BEFORE_ATTR_VALUE:
+                    if (c == '"') {
+                        startValue(pos + 1);
+                        state = ATTR_VALUE_DOUBLE_QUOTED;
+                    } else if (c == '\'') {
+                        startValue(pos + 1);
+                        state = ATTR_VALUE_SINGLE_QUOTED;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (!isWhitespace(c)) {
+                        startValue(pos);
+                        appendValue(c);
+                        state = ATTR_VALUE_UNQUOTED;
+                    }
+                    break;
+                case ATTR_VALUE_DOUBLE_QUOTED:
+                case ATTR_VALUE_SINGLE_QUOTED:
+                    if (c == (state == ATTR_VALUE_DOUBLE_QUOTED ? '"' : '\'')) {
+                        endValue(pos);
+                        state = BEFORE_ATTR_NAME;
+                    } else {
+                        appendValue(c);
+                    }
+                    break;
+                case ATTR_VALUE_UNQUOTED:
+                    if (isWhitespace(c)) {
+                        endValue(pos);
+                        state = BEFORE_ATTR_NAME;
+                    } else if (c == '>') {
+                        endValue(pos);
+                        endTag();
+                    } else {
+                        appendValue(c);
+                    }
+                    break;
+                case MARKUP_DECLARATION:
+                    if (c == '-' && ++dashes == 2) {
+                        dashes = 0;
+                        state = COMMENT;
+                    } else if (c == '>') {
+                        state = TEXT;
+                    } else if (c != '-') {
+                        state = BOGUS_COMMENT;
+                    }
+                    break;
+                case COMMENT:
+                    if (c == '-') {
+                        dashes++;
+                    } else if (c == '>' && dashes >= 2) {
+                        state = TEXT;
+                    } else {
+                        dashes = 0;
+                    }
+                    break;
+                case RAW_TEXT:
+                    if (toLowerCase(c) == rawTextEnd.charAt(rawTextMatched)) {
+                        if (++rawTextMatched == rawTextEnd.length()) {
+                            state = END_TAG;
+                        }
+                    } else {
+                        rawTextMatched = c == '<' ? 1 : 0;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void finish() {
+            if (state == TEXT) {
+                endWord();
+            }
+        }
+
+        private void text(char c) {
+            if (c == '<') {
+                endWord();
+                state = TAG_OPEN;
+            } else if (isWhitespace(c)) {
+                endWord();
+            } else if (extractTextURLs) {
+                if (word.length() == 0) {
+                    wordStart = pos;
+                }
+                if (word.length() < MAX_TEXT_URL_LENGTH) {
+                    word.append(c);
+                } else {
+                    wordTooLong = true;
+                }
+            }
+        }
+
+        private void startAttrName(char c) {
+            attrName.setLength(0);
+            attrName.append(toLowerCase(c));
+            state = ATTR_NAME;
+        }
+
+        private void startValue(int start) {
+            String name = attrName.toString();
+            capturing = "href".equals(name) || "src".equals(name) || "action".equals(name);
+            valueStart = start;
+            value.setLength(0);
+        }
+
+        private void appendValue(char c) {
+            if (capturing) {
+                value.append(c);
+            }
+        }
+
+        private void endValue(int end) {
+            if (!capturing) {
+                return;
+            }
+            capturing = false;
+
+            // Leading and trailing whitespace is not part of URL attributes.
+            int start = valueStart;
+            int from = 0;
+            int to = value.length();
+            while (from < to && isWhitespace(value.charAt(from))) {
+                from++;
+                start++;
+            }
+            while (to > from && isWhitespace(value.charAt(to - 1))) {
+                to--;
+                end--;
+            }
+            if (from == to) {
+                return;
+            }
+            String ref = decodeCharacterReferences(value.subSequence(from, to));
+
+            boolean isBaseTag = "base".equals(tagName.toString());
+            if (isBaseTag) {
+                if (!hasBase && "href".contentEquals(attrName)) {
+                    hasBase = true;
+                    URL base = resolveBase(ref);
+                    if (base != null) {
+                        try {
+                            resolver = new URLResolver(base);
+                        } catch (InvalidURLReferenceException e) {
+                            // Keep the document URL as the base.
+                        }
+                    }
+                }
+                return;
+            }
+            emit(ref, start, end);
+        }
+
+        private void endTag() {
+            String name = tagName.toString();
+            if ("script".equals(name) || "style".equals(name)) {
+                rawTextEnd = "</" + name;
+                rawTextMatched = 0;
+                state = RAW_TEXT;
+            } else {
+                state = TEXT;
+            }
+        }
+
+        private void endWord() {
+            if (word.length() == 0) {
+                return;
+            }
+            if (!wordTooLong) {
+                int start = indexOfScheme(word);
+                if (start >= 0) {
+                    int end = word.length();
+                    while (end > start && isTrailingPunctuation(word.charAt(end - 1))) {
+                        end--;
+                    }
+                    String ref = decodeCharacterReferences(word.subSequence(start, end));
+                    emit(ref, wordStart + start, wordStart + end);
+                }
+            }
+            word.setLength(0);
+            wordTooLong = false;
+        }
+
+        /**
+         * Returns the index of the first 'http://' or 'https://' of the word, or -1.
+         */
+        private int indexOfScheme(StringBuilder word) {
+            int len = word.length();
+            for (int i = 0; i + 7 < len; i++) {
+                if (toLowerCase(word.charAt(i)) != 'h'
+                        || toLowerCase(word.charAt(i + 1)) != 't'
+                        || toLowerCase(word.charAt(i + 2)) != 't'
+                        || toLowerCase(word.charAt(i + 3)) != 'p') {
+                    continue;
+                }
+                int j = i + 4;
+                if (toLowerCase(word.charAt(j)) == 's') {
+                    j++;
+                }
+                if (j + 3 < len && word.charAt(j) == ':' && word.charAt(j + 1) == '/' && word.charAt(j + 2) == '/') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void emit(String ref, int start, int end) {
+            URL url = resolve(ref);
+            if (url != null) {
+                listener.onLink(url, start, end);
+            }
+        }
+
+        /**
+         * Returns the URL of a {@literal <base href>}. Resolving drops trailing slashes, but they decide
+         * which directory relative links are resolved against, so they are kept here.
+         */
+        private URL resolveBase(String ref) {
+            URL base = resolve(ref);
+            if (base == null || base.getPath() == null || base.getPath().endsWith("/")) {
+                return base;
+            }
+            int pathEnd = ref.length();
+            for (int i = 0; i < ref.length(); i++) {
+                if (ref.charAt(i) == '?' || ref.charAt(i) == '#') {
+                    pathEnd = i;
+                    break;
+                }
+            }
+            if (pathEnd == 0 || ref.charAt(pathEnd - 1) != '/') {
+                return base;
+            }
+            return new URLBuilder()
+                    .setScheme(base.getScheme())
+                    .setUsername(base.getUsername())
+                    .setPassword(base.getPassword())
+                    .setHost(base.getHost())
+                    .setPath(base.getPath() + "/")
+                    .setQuery(base.getQuery())
+                    .setFragment(base.getFragment())
+                    .build();
+        }
+
+        private URL resolve(String ref) {
+            try {
+                return resolver.resolve(ref);
+            } catch (MalformedURLException | InvalidURLReferenceException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.anthonynsimon.url;
+
+/**
+ * LongCountMap is an open-addressed hash map of long keys to long counts, which avoids boxing
+ * both of them. Slots are probed linearly and the table doubles when it's 3/4 full.
+ * <p>
+ * It is not thread-safe.
+ */
+final class LongCountMap {
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Empty slots hold a zero key, so the count of the zero key is tracked separately.
+     */
+    private long[] keys;
+    private long[] counts;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroKeyCount;
+
+    LongCountMap() {
+        keys = new long[MIN_CAPACITY];
+        counts = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * Adds delta to the count of the key and returns the new count.
+     */
+    long add(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroKeyCount += delta;
+            return zeroKeyCount;
+        }
+
+        int slot = find(keys, key);
+        if (keys[slot] == 0) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                grow();
+                slot = find(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot] += delta;
+        return counts[slot];
+    }
+
+    /**
+     * Returns the count of the key, or 0 if it was never added.
+     */
+    long get(long key) {
+        if (key == 0) {
+            return zeroKeyCount;
+        }
+        int slot = find(keys, key);
+        return keys[slot] == key ? counts[slot] : 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots that can be visited with keyAt and countAt, including the one
+     * for the zero key.
+     */
+    int slots() {
+        return keys.length + 1;
+    }
+
+    /**
+     * Returns true if the slot holds a key.
+     */
+    boolean isUsed(int slot) {
+        return slot == keys.length ? hasZeroKey : keys[slot] != 0;
+    }
+
+    long keyAt(int slot) {
+        return slot == keys.length ? 0 : keys[slot];
+    }
+
+    long countAt(int slot) {
+        return slot == keys.length ? zeroKeyCount : counts[slot];
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot where it should go.
+     */
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int i = (int) Murmur3Hasher.fmix64(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+}
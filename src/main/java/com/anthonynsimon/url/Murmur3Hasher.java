@@ -0,0 +1,173 @@
+package com.anthonynsimon.url;
+
+/**
+ * Murmur3Hasher is an incremental implementation of the 128-bit x64 variant of MurmurHash3.
+ * Characters are fed as UTF-16 little-endian code units, so hashing a String gives the same result
+ * as hashing the UTF-16LE bytes of it, without having to encode it first.
+ * <p>
+ * It is not thread-safe and must not be reused after calling finish().
+ */
+final class Murmur3Hasher {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+
+    /**
+     * Pending block, holds up to 8 characters (4 in k1 and 4 in k2).
+     */
+    private long k1;
+    private long k2;
+    private int pending;
+
+    /**
+     * Total number of bytes fed to the hasher.
+     */
+    private long length;
+
+    Murmur3Hasher() {
+        this(0);
+    }
+
+    Murmur3Hasher(long seed) {
+        this.h1 = seed;
+        this.h2 = seed;
+    }
+
+    /**
+     * Returns the 64-bit hash of the string.
+     */
+    static long hash64(String str) {
+        return new Murmur3Hasher().putString(str).finishHigh();
+    }
+
+    Murmur3Hasher putChar(char c) {
+        if (pending < 4) {
+            k1 |= (long) c << (pending << 4);
+        } else {
+            k2 |= (long) c << ((pending - 4) << 4);
+        }
+        length += 2;
+        if (++pending == 8) {
+            mixBlock();
+        }
+        return this;
+    }
+
+    Murmur3Hasher putInt(int value) {
+        putChar((char) value);
+        putChar((char) (value >>> 16));
+        return this;
+    }
+
+    Murmur3Hasher putString(String str) {
+        return putString(str, 0, str.length());
+    }
+
+    /**
+     * Feeds the characters of str[start, end).
+     */
+    Murmur3Hasher putString(String str, int start, int end) {
+        for (int i = start; i < end; i++) {
+            putChar(str.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Feeds the length of the string followed by its characters, so that consecutive strings
+     * can't be confused with each other. Null strings are fed as a length of -1.
+     */
+    Murmur3Hasher putComponent(String str) {
+        if (str == null) {
+            return putInt(-1);
+        }
+        putInt(str.length());
+        return putString(str);
+    }
+
+    /**
+     * Completes the hash computation. The result is available through high() and low().
+     */
+    void finish() {
+        if (pending > 4) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (pending > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+        pending = 0;
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+    }
+
+    /**
+     * Completes the hash computation and returns its first 64 bits.
+     */
+    long finishHigh() {
+        finish();
+        return h1;
+    }
+
+    /**
+     * Returns the first 64 bits of the hash.
+     */
+    long high() {
+        return h1;
+    }
+
+    /**
+     * Returns the last 64 bits of the hash.
+     */
+    long low() {
+        return h2;
+    }
+
+    /**
+     * Returns a well distributed 64-bit value from the input. It's the finalizer of MurmurHash3.
+     */
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private void mixBlock() {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        k1 = 0;
+        k2 = 0;
+        pending = 0;
+    }
+}
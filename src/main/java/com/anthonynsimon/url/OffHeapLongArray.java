@@ -0,0 +1,167 @@
+package com.anthonynsimon.url;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * OffHeapLongArray is a fixed size array of longs stored outside of the Java heap, either in direct
+ * buffers or in a memory-mapped file. It's split in segments so that it can hold more than the 2GB
+ * a single ByteBuffer is limited to.
+ * <p>
+ * Values are stored in little-endian order, so files are portable across platforms.
+ * It does not do any synchronization on its own.
+ */
+final class OffHeapLongArray {
+    /**
+     * Each segment holds 2^27 longs (1GB).
+     */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] buffers;
+    private final LongBuffer[] segments;
+    private final long length;
+
+    /**
+     * Key of the file the array is mapped from, or null if it's backed by direct buffers.
+     * A file replaced at the same path has a different key.
+     */
+    private final Object fileKey;
+
+    private OffHeapLongArray(ByteBuffer[] buffers, long length, Object fileKey) {
+        this.buffers = buffers;
+        this.segments = new LongBuffer[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            segments[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        this.length = length;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Returns a new zeroed array backed by direct buffers.
+     */
+    static OffHeapLongArray allocate(long length) {
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount(length)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(segmentLength(length, i) * Long.BYTES);
+        }
+        return new OffHeapLongArray(buffers, length, null);
+    }
+
+    /**
+     * Returns an array backed by the region of the file that starts at position. The file grows
+     * if it is not large enough and changes are written back to it.
+     *
+     * @throws IOException if the file could not be mapped.
+     */
+    static OffHeapLongArray map(Path file, FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount(length)];
+        long offset = position;
+        for (int i = 0; i < buffers.length; i++) {
+            long size = (long) segmentLength(length, i) * Long.BYTES;
+            buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+            offset += size;
+        }
+        return new OffHeapLongArray(buffers, length, fileKey(file));
+    }
+
+    long length() {
+        return length;
+    }
+
+    long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    void set(long index, long value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Writes the header followed by the whole array to the file, replacing it if it exists.
+     * The file is written next to the target and then moved over it, so it's never left half
+     * written, nor truncated under a live mapping. If the array is mapped from that same file,
+     * which already holds the header, its changes are forced to disk instead.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    void writeTo(Path target, ByteBuffer header) throws IOException {
+        if (fileKey != null && fileKey.equals(fileKey(target))) {
+            force();
+            return;
+        }
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                writeTo(channel);
+                channel.force(false);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Writes the whole array to the current position of the channel.
+     *
+     * @throws IOException if the array could not be written.
+     */
+    private void writeTo(FileChannel channel) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            ByteBuffer view = buffer.duplicate();
+            view.clear();
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        }
+    }
+
+    /**
+     * Forces any changes to be written to the file, if the array is memory-mapped.
+     */
+    void force() {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+    }
+
+    /**
+     * Returns the key that identifies the file (i.e. its inode), or null if it doesn't exist or the
+     * file system has none.
+     */
+    private static Object fileKey(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    private static int segmentCount(long length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("length must be positive");
+        }
+        return (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    private static int segmentLength(long length, int segment) {
+        long remaining = length - ((long) segment << SEGMENT_SHIFT);
+        return (int) Math.min(remaining, 1L << SEGMENT_SHIFT);
+    }
+}
@@ -0,0 +1,190 @@
+package com.anthonynsimon.url;
+
+import java.io.Serializable;
+
+/**
+ * Origin is the scheme, host and port of a URL ('https://example.com:8443'), as used for same-origin
+ * checks and to group URLs by the server they are fetched from. The port is the effective one: if the
+ * URL has no port, it's the default port of the scheme.
+ * <p>
+ * Origins are immutable and their hash code is computed once, so they are cheap map keys. They are
+ * interned in a small lossy table, so the origins of URLs of the same server are usually the same
+ * instance, and comparing them is a reference check. Equal origins are always equal by equals.
+ */
+public final class Origin implements Serializable {
+
+    /**
+     * Unique ID for serialization purposes.
+     */
+    private static final long serialVersionUID = 80443L;
+
+    /**
+     * Recently created origins, indexed by hash. Slots are replaced without locking: origins are
+     * immutable, so a reader sees either an old origin or a new one, and only uses it if it's equal.
+     */
+    private static final Origin[] INTERNED = new Origin[4096];
+
+    private final String scheme;
+    private final String host;
+    private final int port;
+    private final int hash;
+
+    private Origin(String scheme, String host, int port) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.hash = hash(scheme, host, port);
+    }
+
+    /**
+     * Returns the origin of the URL, or null if it has no scheme or no host. URLs with an empty
+     * authority ('file:///etc/passwd') have no host.
+     */
+    static Origin of(URL url) {
+        String scheme = url.getScheme();
+        String host = url.getHostname();
+        if (scheme == null || host == null || host.isEmpty()) {
+            return null;
+        }
+        scheme = toLowerCase(scheme);
+        host = toLowerCase(host);
+        return intern(scheme, host, effectivePort(scheme, url.getPort()));
+    }
+
+    private static Origin intern(String scheme, String host, int port) {
+        int hash = hash(scheme, host, port);
+        int slot = (hash ^ hash >>> 16) & (INTERNED.length - 1);
+        Origin interned = INTERNED[slot];
+        if (interned != null && interned.hash == hash && interned.port == port
+                && interned.scheme.equals(scheme) && interned.host.equals(host)) {
+            return interned;
+        }
+        Origin origin = new Origin(scheme, host, port);
+        INTERNED[slot] = origin;
+        return origin;
+    }
+
+    /**
+     * Returns true if both URLs have the same scheme, host and effective port. URLs without a scheme
+     * or a host have no origin, so they are never the same origin as any other.
+     */
+    static boolean isSameOrigin(URL a, URL b) {
+        String schemeA = a.getScheme();
+        String schemeB = b.getScheme();
+        String hostA = a.getHostname();
+        String hostB = b.getHostname();
+        if (schemeA == null || schemeB == null || hostA == null || hostB == null || hostA.isEmpty() || hostB.isEmpty()) {
+            return false;
+        }
+        return equalsIgnoreASCIICase(schemeA, schemeB)
+                && equalsIgnoreASCIICase(hostA, hostB)
+                && effectivePort(toLowerCase(schemeA), a.getPort()) == effectivePort(toLowerCase(schemeB), b.getPort());
+    }
+
+    /**
+     * Returns the lowercase scheme ('https').
+     */
+    public String getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Returns the hostname with ASCII letters in lowercase ('example.com' or '[::1]').
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the port of the URL, or the default port of the scheme if it had none, or -1 if the
+     * scheme has no known default port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Origin)) {
+            return false;
+        }
+        Origin origin = (Origin) other;
+        return hash == origin.hash && port == origin.port && scheme.equals(origin.scheme) && host.equals(origin.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the serialized origin ('https://example.com'), without the port if it's the default one.
+     */
+    @Override
+    public String toString() {
+        Integer defaultPort = URLNormalizer.defaultPort(scheme);
+        if (port < 0 || defaultPort != null && port == defaultPort) {
+            return scheme + "://" + host;
+        }
+        return scheme + "://" + host + ":" + port;
+    }
+
+    /**
+     * Interns deserialized origins as well.
+     */
+    private Object readResolve() {
+        return intern(scheme, host, port);
+    }
+
+    private static int effectivePort(String scheme, Integer port) {
+        if (port != null) {
+            return port;
+        }
+        Integer defaultPort = URLNormalizer.defaultPort(scheme);
+        return defaultPort != null ? defaultPort : -1;
+    }
+
+    private static int hash(String scheme, String host, int port) {
+        return (scheme.hashCode() * 31 + host.hashCode()) * 31 + port;
+    }
+
+    /**
+     * Returns the string with ASCII letters in lowercase. Other characters are left as they are, so
+     * that origins compare the same way as isSameOrigin.
+     */
+    private static String toLowerCase(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (isASCIIUpperCase(str.charAt(i))) {
+                char[] chars = str.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    chars[j] = toASCIILowerCase(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return str;
+    }
+
+    private static boolean equalsIgnoreASCIICase(String a, String b) {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (toASCIILowerCase(a.charAt(i)) != toASCIILowerCase(b.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isASCIIUpperCase(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static char toASCIILowerCase(char c) {
+        return isASCIIUpperCase(c) ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -1,8 +1,5 @@
 package com.anthonynsimon.url;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * PathResolver is a utility class that resolves a reference path against a base path.
  */
@@ -15,22 +12,180 @@ final class PathResolver {
     }
 
     /**
-     * Returns a resolved path.
+     * Returns a resolved path. Empty segments are collapsed and the result always starts with a slash.
+     * It only ends in a slash if the last segment is '.' or '..'.
      * <p>
      * For example:
      * <p>
-     * resolve("/some/path", "..") == "/some"
+     * resolve("/some/path", "..") == "/"
      * resolve("/some/path", ".") == "/some/"
      * resolve("/some/path", "./here") == "/some/here"
      * resolve("/some/path", "../here") == "/here"
+     * resolve("/some/path/", "") == "/some/path"
      */
     public static String resolve(String base, String ref) {
         String merged = merge(base, ref);
         if (merged == null || merged.isEmpty()) {
             return "";
         }
-        String[] parts = merged.split("/", -1);
-        return resolve(parts);
+        if (merged.charAt(0) == '/' && !needsResolving(merged)) {
+            return merged;
+        }
+
+        // The merged path is copied after a leading slash, and resolved in place. The write cursor
+        // never goes past the read cursor, since only characters that were already read are written.
+        int len = merged.length() + 1;
+        char[] buf = new char[len];
+        buf[0] = '/';
+        merged.getChars(0, merged.length(), buf, 1);
+
+        int w = 1;
+        int r = 1;
+        boolean endsInDotSegment = false;
+        while (r < len) {
+            if (buf[r] == '/') {
+                r++;
+                continue;
+            }
+            int start = r;
+            while (r < len && buf[r] != '/') {
+                r++;
+            }
+            int segmentLength = r - start;
+            endsInDotSegment = false;
+            if (segmentLength == 1 && buf[start] == '.') {
+                endsInDotSegment = r == len;
+                continue;
+            }
+            if (segmentLength == 2 && buf[start] == '.' && buf[start + 1] == '.') {
+                // Remove the last written segment, the output keeps ending with a slash.
+                endsInDotSegment = r == len;
+                if (w > 1) {
+                    w--;
+                    while (buf[w - 1] != '/') {
+                        w--;
+                    }
+                }
+                continue;
+            }
+            System.arraycopy(buf, start, buf, w, segmentLength);
+            w += segmentLength;
+            if (r < len) {
+                buf[w++] = '/';
+            }
+        }
+
+        if (w > 1 && buf[w - 1] == '/' && !endsInDotSegment) {
+            w--;
+        }
+        return new String(buf, 0, w);
+    }
+
+    /**
+     * Returns true if the path has empty, '.' or '..' segments, or a trailing slash.
+     */
+    private static boolean needsResolving(String path) {
+        int len = path.length();
+        if (len > 1 && path.charAt(len - 1) == '/') {
+            return true;
+        }
+        for (int i = 1; i < len; i++) {
+            char c = path.charAt(i);
+            if (c == '/' && path.charAt(i - 1) == '/') {
+                return true;
+            }
+            if (c == '.' && path.charAt(i - 1) == '/') {
+                int end = i + 1 < len && path.charAt(i + 1) == '.' ? i + 2 : i + 1;
+                if (end == len || path.charAt(end) == '/') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the path with its '.' and '..' segments removed as described in RFC 3986 section 5.2.4.
+     * Unlike resolve, empty segments and trailing slashes are preserved. If the path has no dot segments
+     * it is returned as is.
+     * <p>
+     * For example:
+     * <p>
+     * removeDotSegments("/a/b/../c/") == "/a/c/"
+     * removeDotSegments("/a/./b/.") == "/a/b/"
+     * removeDotSegments("a/../../b") == "b"
+     */
+    static String removeDotSegments(String path) {
+        if (path == null || !hasDotSegments(path)) {
+            return path;
+        }
+
+        boolean absolute = path.charAt(0) == '/';
+        int len = path.length();
+        StringBuilder sb = new StringBuilder(len);
+        int start = absolute ? 1 : 0;
+        while (start <= len) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = len;
+            }
+            boolean last = end == len;
+            switch (dotSegmentLength(path, start, end)) {
+                case 1:
+                    if (last) {
+                        sb.append('/');
+                    }
+                    break;
+                case 2:
+                    sb.setLength(Math.max(sb.lastIndexOf("/"), 0));
+                    if (last) {
+                        sb.append('/');
+                    }
+                    break;
+                default:
+                    sb.append('/').append(path, start, end);
+                    break;
+            }
+            start = end + 1;
+        }
+
+        if (!absolute && sb.length() > 0 && sb.charAt(0) == '/') {
+            sb.deleteCharAt(0);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns true if any of the segments of the path is '.' or '..'.
+     */
+    private static boolean hasDotSegments(String path) {
+        int len = path.length();
+        int start = 0;
+        while (start <= len) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = len;
+            }
+            if (dotSegmentLength(path, start, end) > 0) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Returns 1 if path[start, end) is '.', 2 if it is '..' and 0 otherwise.
+     */
+    private static int dotSegmentLength(String path, int start, int end) {
+        int len = end - start;
+        if (len < 1 || len > 2 || path.charAt(start) != '.') {
+            return 0;
+        }
+        if (len == 2 && path.charAt(start + 1) != '.') {
+            return 0;
+        }
+        return len;
     }
 
     /**
@@ -61,49 +216,4 @@ final class PathResolver {
 
         return merged;
     }
-
-    /**
-     * Returns the resolved path parts.
-     * <p>
-     * Example:
-     * <p>
-     * resolve(String[]{"some", "path", "..", "hello"}) == "/some/hello"
-     */
-    private static String resolve(String[] parts) {
-        if (parts.length == 0) {
-            return "";
-        }
-
-        List<String> result = new ArrayList<>();
-
-        for (int i = 0; i < parts.length; i++) {
-            switch (parts[i]) {
-                case "":
-                case ".":
-                    // Ignore
-                    break;
-                case "..":
-                    if (result.size() > 0) {
-                        result.remove(result.size() - 1);
-                    }
-                    break;
-                default:
-                    result.add(parts[i]);
-                    break;
-            }
-        }
-
-        // Get last element, if it was '.' or '..' we need
-        // to end in a slash.
-        switch (parts[parts.length - 1]) {
-            case ".":
-            case "..":
-                // Add an empty last string, it will be turned into
-                // a slash when joined together.
-                result.add("");
-                break;
-        }
-
-        return "/" + String.join("/", result);
-    }
 }
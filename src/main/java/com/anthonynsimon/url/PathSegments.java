@@ -0,0 +1,180 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.MalformedURLException;
+
+/**
+ * PathSegments is a cursor over the segments of the path of a URL, the parts between slashes after
+ * the leading one. '/a/b' has the segments 'a' and 'b', '/a/b/' has 'a', 'b' and '', and '/' has a
+ * single empty segment.
+ * <p>
+ * Segments are found by scanning the raw path as the cursor advances, and are only extracted or
+ * decoded when asked for, so iterating over them doesn't allocate.
+ */
+public final class PathSegments {
+    private final String path;
+    private final boolean escaped;
+    private final int first;
+    private int index;
+    private int start;
+    private int end;
+
+    /**
+     * Returns a cursor over the segments of path, or over none if it's null. Escaped paths are
+     * decoded by getDecoded.
+     */
+    PathSegments(String path, boolean escaped) {
+        this.path = path;
+        this.escaped = escaped;
+        this.first = firstSegmentStart(path);
+        reset();
+    }
+
+    /**
+     * Moves to the next segment. Returns false if there are no more segments.
+     */
+    public boolean next() {
+        if (path == null || end >= path.length() && index >= 0) {
+            return false;
+        }
+        start = index < 0 ? first : end + 1;
+        end = segmentEnd(path, start);
+        index++;
+        return true;
+    }
+
+    /**
+     * Moves the cursor back in front of the first segment.
+     */
+    public void reset() {
+        index = -1;
+        start = -1;
+        end = -1;
+    }
+
+    /**
+     * Returns the index of the current segment, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the offset in getPath() where the current segment starts.
+     */
+    public int getStart() {
+        checkPosition();
+        return start;
+    }
+
+    /**
+     * Returns the offset in getPath() where the current segment ends.
+     */
+    public int getEnd() {
+        checkPosition();
+        return end;
+    }
+
+    /**
+     * Returns the path being scanned: the raw path of the URL, or its path if it has no raw path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the current segment as it appears in the path.
+     */
+    public String getRaw() {
+        checkPosition();
+        return path.substring(start, end);
+    }
+
+    /**
+     * Returns the current segment unescaped.
+     *
+     * @throws IllegalStateException if the segment has an invalid escape sequence.
+     */
+    public String getDecoded() {
+        return decode(getRaw(), escaped);
+    }
+
+    /**
+     * Returns true if the current segment, as it appears in the path, equals str.
+     */
+    public boolean rawEquals(String str) {
+        checkPosition();
+        return str.length() == end - start && path.regionMatches(start, str, 0, str.length());
+    }
+
+    private void checkPosition() {
+        if (index < 0) {
+            throw new IllegalStateException("next() has not been called");
+        }
+    }
+
+    /**
+     * Returns the number of segments of path, 0 if it's null.
+     */
+    static int count(String path) {
+        if (path == null) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = firstSegmentStart(path); i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the segment of path at index, unescaped if the path is escaped.
+     *
+     * @throws IndexOutOfBoundsException if there is no such segment.
+     */
+    static String get(String path, boolean escaped, int index) {
+        if (index < 0 || path == null) {
+            throw new IndexOutOfBoundsException("path segment " + index);
+        }
+        int start = firstSegmentStart(path);
+        for (int i = 0; i < index; i++) {
+            start = path.indexOf('/', start) + 1;
+            if (start == 0) {
+                throw new IndexOutOfBoundsException("path segment " + index);
+            }
+        }
+        return decode(path.substring(start, segmentEnd(path, start)), escaped);
+    }
+
+    /**
+     * Returns the last segment of path, unescaped if the path is escaped, or null if path is null.
+     */
+    static String last(String path, boolean escaped) {
+        if (path == null) {
+            return null;
+        }
+        int start = Math.max(path.lastIndexOf('/') + 1, firstSegmentStart(path));
+        return decode(path.substring(start), escaped);
+    }
+
+    private static int firstSegmentStart(String path) {
+        return path != null && path.startsWith("/") ? 1 : 0;
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int slash = path.indexOf('/', start);
+        return slash >= 0 ? slash : path.length();
+    }
+
+    private static String decode(String segment, boolean escaped) {
+        if (!escaped) {
+            return segment;
+        }
+        try {
+            return PercentEncoder.decode(segment);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("invalid escape sequence in path segment: " + segment, e);
+        }
+    }
+}
@@ -21,6 +21,10 @@ final class PercentEncoder {
      * Unreserved characters do not need to be escaped.
      */
     private static final char[] unreservedChars = {'-', '_', '.', '~'};
+    /**
+     * Sub-delimiters and general delimiters, whose escaping depends on the part of the URL.
+     */
+    private static final char[] delimiterChars = {'$', '&', '+', ',', '/', ':', ';', '=', '?', '@'};
     /**
      * Byte masks to aid in the decoding of UTF-8 byte arrays.
      */
@@ -62,7 +66,7 @@ final class PercentEncoder {
             }
         }
 
-        for (char reserved : new char[]{'$', '&', '+', ',', '/', ':', ';', '=', '?', '@'}) {
+        for (char reserved : delimiterChars) {
             if (reserved == c) {
                 switch (zone) {
                     case PATH:
@@ -82,10 +86,13 @@ final class PercentEncoder {
         return true;
     }
 
-    private static boolean needsEscaping(String str, URLPart zone) {
-        char[] chars = str.toCharArray();
-        for (char c : chars) {
-            if (shouldEscapeChar(c, zone)) {
+    /**
+     * Returns true if any character of the string must be escaped in the provided zone.
+     */
+    static boolean needsEscaping(String str, URLPart zone) {
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            if (shouldEscapeChar(str.charAt(i), zone)) {
                 return true;
             }
         }
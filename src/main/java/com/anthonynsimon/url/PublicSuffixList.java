@@ -0,0 +1,233 @@
+package com.anthonynsimon.url;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PublicSuffixList finds the public suffix ('co.uk') and the registrable domain ('example.co.uk') of
+ * hostnames, following the rules of the Public Suffix List (https://publicsuffix.org), including its
+ * wildcard and exception rules.
+ * <p>
+ * The bundled list is compiled once, when first used, into a LabelTrie. Lookups walk the labels of
+ * the hostname from right to left in place.
+ * <p>
+ * Rules are matched against the Unicode form of internationalized hostnames. Hostnames with
+ * punycode labels ('example.xn--55qx5d.cn') are converted before the lookup, and the suffix found
+ * is returned in their original form.
+ */
+final class PublicSuffixList {
+    private static final String RESOURCE = "public_suffix_list.dat";
+
+    private static final byte RULE = 1;
+    private static final byte WILDCARD = 2;
+    private static final byte EXCEPTION = 4;
+
+    private final LabelTrie trie;
+
+    private PublicSuffixList(LabelTrie trie) {
+        this.trie = trie;
+    }
+
+    /**
+     * Holder of the bundled list, loaded the first time it is needed.
+     */
+    private static final class Holder {
+        private static final PublicSuffixList INSTANCE = load();
+    }
+
+    /**
+     * Returns the list bundled with the library.
+     */
+    static PublicSuffixList getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    private static PublicSuffixList load() {
+        InputStream in = PublicSuffixList.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("public suffix list resource not found: " + RESOURCE);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> rules = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rules.add(line);
+            }
+            return compile(rules);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not read public suffix list", e);
+        }
+    }
+
+    /**
+     * Returns a list compiled from lines in the Public Suffix List format. Comments and empty lines
+     * are ignored, and only the text up to the first whitespace of a line is read.
+     */
+    static PublicSuffixList compile(Iterable<String> lines) {
+        String[] domains = new String[1024];
+        byte[] flags = new byte[1024];
+        int count = 0;
+        for (String line : lines) {
+            String rule = line.trim();
+            int space = indexOfWhitespace(rule);
+            if (space >= 0) {
+                rule = rule.substring(0, space);
+            }
+            if (rule.isEmpty() || rule.startsWith("//")) {
+                continue;
+            }
+
+            byte flag = RULE;
+            if (rule.startsWith("!")) {
+                flag = EXCEPTION;
+                rule = rule.substring(1);
+            } else if (rule.startsWith("*.")) {
+                flag = WILDCARD;
+                rule = rule.substring(2);
+            }
+            if (count == domains.length) {
+                domains = Arrays.copyOf(domains, count * 2);
+                flags = Arrays.copyOf(flags, count * 2);
+            }
+            domains[count] = rule;
+            flags[count] = flag;
+            count++;
+        }
+        return new PublicSuffixList(LabelTrie.compile(domains, flags, count));
+    }
+
+    /**
+     * Returns the index at which the public suffix of the hostname starts, or -1 if the hostname
+     * is an IP address or is not valid. Hostnames that match no rule have their last label as
+     * public suffix.
+     */
+    int publicSuffixStart(String hostname) {
+        if (!isDomainName(hostname)) {
+            return -1;
+        }
+        if (hasPunycodeLabel(hostname)) {
+            String unicode = toUnicode(hostname);
+            if (!unicode.equals(hostname)) {
+                // Conversion keeps the labels, so the suffix has as many labels in both forms.
+                int start = unicodeSuffixStart(unicode);
+                int labels = 0;
+                for (int i = start; i < unicode.length(); i++) {
+                    labels += unicode.charAt(i) == '.' ? 1 : 0;
+                }
+                start = hostname.length();
+                for (int i = 0; i <= labels; i++) {
+                    start = hostname.lastIndexOf('.', start - 1);
+                }
+                return start + 1;
+            }
+        }
+        return unicodeSuffixStart(hostname);
+    }
+
+    private int unicodeSuffixStart(String hostname) {
+
+        int node = LabelTrie.ROOT;
+        int end = hostname.length();
+        int previousStart = end;
+        int suffixStart = hostname.lastIndexOf('.') + 1;
+        while (true) {
+            int start = hostname.lastIndexOf('.', end - 1) + 1;
+            int child = trie.findChild(node, hostname, start, end);
+            if (child >= 0 && (trie.flags(child) & EXCEPTION) != 0) {
+                // Exception rules prevail, the public suffix is one label shorter than the rule.
+                return previousStart;
+            }
+            if ((trie.flags(node) & WILDCARD) != 0 || child >= 0 && (trie.flags(child) & RULE) != 0) {
+                suffixStart = start;
+            }
+            if (child < 0 || start == 0) {
+                return suffixStart;
+            }
+            node = child;
+            previousStart = start;
+            end = start - 1;
+        }
+    }
+
+    /**
+     * Returns the public suffix of the hostname, or null if it is an IP address or is not valid.
+     */
+    String getPublicSuffix(String hostname) {
+        int start = publicSuffixStart(hostname);
+        return start >= 0 ? hostname.substring(start) : null;
+    }
+
+    /**
+     * Returns the public suffix of the hostname together with the label before it, or null if the
+     * hostname is itself a public suffix, an IP address or is not valid.
+     */
+    String getRegistrableDomain(String hostname) {
+        int start = publicSuffixStart(hostname);
+        if (start <= 0) {
+            return null;
+        }
+        return hostname.substring(hostname.lastIndexOf('.', start - 2) + 1);
+    }
+
+    /**
+     * Returns true if the hostname is made of non-empty labels and is not an IP address.
+     */
+    private static boolean isDomainName(String hostname) {
+        if (hostname == null || hostname.isEmpty() || hostname.charAt(0) == '[') {
+            return false;
+        }
+        boolean numeric = true;
+        char previous = '.';
+        for (int i = 0; i < hostname.length(); i++) {
+            char c = hostname.charAt(i);
+            if (c == '.' && previous == '.') {
+                return false;
+            }
+            if (c != '.' && (c < '0' || c > '9')) {
+                numeric = false;
+            }
+            previous = c;
+        }
+        return previous != '.' && !numeric;
+    }
+
+    /**
+     * Returns true if a label of the hostname starts with the ACE prefix 'xn--'.
+     */
+    private static boolean hasPunycodeLabel(String hostname) {
+        for (int i = 0; i + 4 <= hostname.length(); i++) {
+            if ((i == 0 || hostname.charAt(i - 1) == '.') && hostname.regionMatches(true, i, "xn--", 0, 4)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the hostname with its punycode labels converted to Unicode, and the hostname as it is
+     * if it can't be converted.
+     */
+    private static String toUnicode(String hostname) {
+        try {
+            return IDN.toUnicode(hostname, IDN.ALLOW_UNASSIGNED);
+        } catch (IllegalArgumentException e) {
+            return hostname;
+        }
+    }
+
+    private static int indexOfWhitespace(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (Character.isWhitespace(str.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,278 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.MalformedURLException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ReverseDomainKey writes and parses row keys in which the labels of the hostname are reversed, so
+ * that keys of the same domain and its subdomains sort near each other.
+ * <p>
+ * The key is the reversed hostname, always followed by ':' and the scheme, then ':port' if the URL
+ * has a port, and then the path and query:
+ * <p>
+ * http://www.example.com:8080/path?q == "com.example.www:http:8080/path?q"
+ * https://www.example.com/path == "com.example.www:https/path"
+ * <p>
+ * Since ':' never appears in a hostname, all the keys of a host share the same prefix and sort
+ * next to each other, and keys of the same scheme are grouped within them.
+ * <p>
+ * IPv4 and IPv6 hosts are written as they are. Credentials and fragments are not part of the key.
+ * Writing a key to a ByteBuffer encodes it in UTF-8 without allocating.
+ */
+public final class ReverseDomainKey {
+    /**
+     * Disallow instantiation of class.
+     */
+    private ReverseDomainKey() {
+    }
+
+    /**
+     * Returns the reverse domain key of the URL.
+     *
+     * @throws IllegalArgumentException if the URL has no host or no scheme.
+     */
+    public static String toKey(URL url) {
+        char[] chars = new char[write(url, null, null)];
+        write(url, null, chars);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the reverse domain key of the URL to the buffer in UTF-8, and returns the number of
+     * bytes written.
+     *
+     * @throws IllegalArgumentException         if the URL has no host or no scheme.
+     * @throws java.nio.BufferOverflowException if the buffer has not enough space left.
+     */
+    public static int write(URL url, ByteBuffer out) {
+        int start = out.position();
+        write(url, out, null);
+        return out.position() - start;
+    }
+
+    /**
+     * Returns the URL of a reverse domain key.
+     *
+     * @throws MalformedURLException if the key is not valid.
+     */
+    public static URL parse(CharSequence key) throws MalformedURLException {
+        int len = key.length();
+        int hostEnd;
+        if (len > 0 && key.charAt(0) == '[') {
+            hostEnd = indexOf(key, ']', 0, len);
+            if (hostEnd < 0) {
+                throw new MalformedURLException("missing closing bracket of ipv6 host");
+            }
+            hostEnd++;
+        } else {
+            hostEnd = indexOfDelimiter(key, 0);
+        }
+        if (hostEnd == 0) {
+            throw new MalformedURLException("reverse domain key has no host");
+        }
+
+        if (hostEnd == len || key.charAt(hostEnd) != ':') {
+            throw new MalformedURLException("missing scheme after host in reverse domain key");
+        }
+        int schemeEnd = indexOfDelimiter(key, hostEnd + 1);
+        if (schemeEnd == hostEnd + 1 || !Character.isLetter(key.charAt(hostEnd + 1))) {
+            throw new MalformedURLException("invalid scheme in reverse domain key");
+        }
+        int i = schemeEnd;
+        int portStart = -1;
+        if (i < len && key.charAt(i) == ':') {
+            portStart = i + 1;
+            i = indexOfDelimiter(key, portStart);
+            if (i == portStart || i < len && key.charAt(i) == ':') {
+                throw new MalformedURLException("invalid port in reverse domain key");
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(len + 3);
+        sb.append(key, hostEnd + 1, schemeEnd).append("://");
+        if (isLiteralAddress(key, 0, hostEnd)) {
+            sb.append(key, 0, hostEnd);
+        } else {
+            appendReversedLabels(key, 0, hostEnd, sb);
+        }
+        if (portStart >= 0) {
+            sb.append(':').append(key, portStart, i);
+        }
+        sb.append(key, i, len);
+        return URL.parse(sb.toString());
+    }
+
+    /**
+     * Returns the URL of a reverse domain key encoded in UTF-8 in the remaining bytes of the buffer.
+     * The position of the buffer is not changed.
+     *
+     * @throws MalformedURLException if the key is not valid.
+     */
+    public static URL parse(ByteBuffer key) throws MalformedURLException {
+        return parse(StandardCharsets.UTF_8.decode(key.duplicate()));
+    }
+
+    /**
+     * Writes the key to out if it is not null, or to chars if it is not null. Returns the number of
+     * characters of the key when writing to chars or when both are null.
+     */
+    private static int write(URL url, ByteBuffer out, char[] chars) {
+        String hostname = url.getHostname();
+        if (hostname == null || hostname.isEmpty()) {
+            throw new IllegalArgumentException("url has no host");
+        }
+        String scheme = url.getScheme();
+        if (scheme == null) {
+            throw new IllegalArgumentException("url has no scheme");
+        }
+
+        int pos = 0;
+        if (isLiteralAddress(hostname, 0, hostname.length())) {
+            pos = put(hostname, 0, hostname.length(), out, chars, pos);
+        } else {
+            int end = hostname.length();
+            while (true) {
+                int start = hostname.lastIndexOf('.', end - 1) + 1;
+                pos = put(hostname, start, end, out, chars, pos);
+                if (start == 0) {
+                    break;
+                }
+                pos = put('.', out, chars, pos);
+                end = start - 1;
+            }
+        }
+
+        pos = put(':', out, chars, pos);
+        pos = put(scheme, 0, scheme.length(), out, chars, pos);
+
+        Integer port = url.getPort();
+        if (port != null) {
+            pos = put(':', out, chars, pos);
+            int value = port;
+            int divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                pos = put((char) ('0' + value / divisor % 10), out, chars, pos);
+            }
+        }
+
+        String path = url.serializedPath();
+        if (path != null) {
+            if (url.pathNeedsSlash()) {
+                pos = put('/', out, chars, pos);
+            }
+            pos = put(path, 0, path.length(), out, chars, pos);
+        }
+
+        String query = url.getQuery();
+        if (query != null) {
+            pos = put('?', out, chars, pos);
+            if (!"?".equals(query)) {
+                pos = put(query, 0, query.length(), out, chars, pos);
+            }
+        }
+        return pos;
+    }
+
+    private static int put(String str, int start, int end, ByteBuffer out, char[] chars, int pos) {
+        if (out == null) {
+            if (chars != null) {
+                str.getChars(start, end, chars, pos);
+            }
+            return pos + end - start;
+        }
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >> 18));
+                out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                put(c, out, null, 0);
+            }
+        }
+        return pos + end - start;
+    }
+
+    private static int put(char c, ByteBuffer out, char[] chars, int pos) {
+        if (out == null) {
+            if (chars != null) {
+                chars[pos] = c;
+            }
+        } else if (c < 0x80) {
+            out.put((byte) c);
+        } else if (c < 0x800) {
+            out.put((byte) (0xC0 | c >> 6));
+            out.put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            // Unpaired surrogates can't be encoded.
+            out.put((byte) '?');
+        } else {
+            out.put((byte) (0xE0 | c >> 12));
+            out.put((byte) (0x80 | c >> 6 & 0x3F));
+            out.put((byte) (0x80 | c & 0x3F));
+        }
+        return pos + 1;
+    }
+
+    /**
+     * Returns true if str[start, end) is an IPv6 host or made of digits and dots only, like an IPv4 host.
+     */
+    private static boolean isLiteralAddress(CharSequence str, int start, int end) {
+        if (start < end && str.charAt(start) == '[') {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendReversedLabels(CharSequence str, int start, int end, StringBuilder sb) {
+        int labelEnd = end;
+        while (true) {
+            int labelStart = labelEnd - 1;
+            while (labelStart >= start && str.charAt(labelStart) != '.') {
+                labelStart--;
+            }
+            sb.append(str, labelStart + 1, labelEnd);
+            if (labelStart < start) {
+                return;
+            }
+            sb.append('.');
+            labelEnd = labelStart;
+        }
+    }
+
+    /**
+     * Returns the index of the first ':', '/' or '?' from start, or the length of the key.
+     */
+    private static int indexOfDelimiter(CharSequence key, int start) {
+        int len = key.length();
+        for (int i = start; i < len; i++) {
+            char c = key.charAt(i);
+            if (c == ':' || c == '/' || c == '?') {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    private static int indexOf(CharSequence str, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (str.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,436 @@
+package com.anthonynsimon.url;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RobotsRules are the rules of a robots.txt file that apply to one crawler, compiled to check URLs
+ * as described by RFC 9309:
+ * <p>
+ * The groups whose user-agent matches the product token of the crawler ('MyBot' for 'MyBot/1.2')
+ * are merged, ignoring case. If there are none, the groups for '*' are used instead, and if there
+ * are none either every URL is allowed.
+ * <p>
+ * A rule matches the escaped path and query of a URL ('/search?q=x') when its pattern is a prefix of
+ * them. In patterns '*' matches any sequence of characters and a trailing '$' matches the end. Of the
+ * rules that match, the one with the longest pattern decides, and allow wins a tie. '/robots.txt' is
+ * always allowed.
+ * <p>
+ * Rules are sorted by precedence when compiled, so checking a URL stops at the first rule that
+ * matches. Matching scans the pattern pieces between wildcards in place, without regular expressions
+ * and without allocating. RobotsRules are immutable, so they can be cached by host and shared between
+ * threads.
+ */
+public final class RobotsRules {
+
+    /**
+     * Rules that allow every URL, as used when robots.txt doesn't exist.
+     */
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(new Rule[0], -1, Collections.<String>emptyList());
+
+    /**
+     * Rules that disallow every URL, as used when robots.txt can't be fetched.
+     */
+    public static final RobotsRules DISALLOW_ALL = new RobotsRules(new Rule[]{new Rule("/", false)}, -1, Collections.<String>emptyList());
+
+    private static final String ROBOTS_PATH = "/robots.txt";
+
+    /**
+     * Reusable view of the path and query of a URL, so that URLs can be checked without allocating.
+     */
+    private static final ThreadLocal<Target> TARGET = new ThreadLocal<Target>() {
+        @Override
+        protected Target initialValue() {
+            return new Target();
+        }
+    };
+
+    private final Rule[] rules;
+    private final long crawlDelayMillis;
+    private final List<String> sitemaps;
+
+    private RobotsRules(Rule[] rules, long crawlDelayMillis, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.sitemaps = sitemaps;
+    }
+
+    /**
+     * Returns the rules of the robots.txt content that apply to the crawler with the user agent.
+     * Lines that can't be understood are ignored.
+     */
+    public static RobotsRules parse(CharSequence content, String userAgent) {
+        String agent = productToken(userAgent, 0, userAgent.length());
+        if (agent.isEmpty()) {
+            throw new IllegalArgumentException("user agent has no product token: " + userAgent);
+        }
+
+        List<Rule> agentRules = new ArrayList<>();
+        List<Rule> wildcardRules = new ArrayList<>();
+        long agentDelay = -1;
+        long wildcardDelay = -1;
+        boolean agentMatched = false;
+        boolean wildcardMatched = false;
+        List<String> sitemaps = new ArrayList<>();
+
+        // State of the current group: which agents it applies to, and whether its rules have started,
+        // in which case the next user-agent line starts a new group.
+        boolean forAgent = false;
+        boolean forWildcard = false;
+        boolean inRules = false;
+
+        int len = content.length();
+        int lineStart = len > 0 && content.charAt(0) == '\uFEFF' ? 1 : 0;
+        while (lineStart < len) {
+            int lineEnd = lineStart;
+            while (lineEnd < len && content.charAt(lineEnd) != '\n' && content.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            int start = lineStart;
+            lineStart = lineEnd + 1;
+            int end = lineEnd;
+            for (int i = start; i < lineEnd; i++) {
+                if (content.charAt(i) == '#') {
+                    end = i;
+                    break;
+                }
+            }
+            int colon = -1;
+            for (int i = start; i < end; i++) {
+                if (content.charAt(i) == ':') {
+                    colon = i;
+                    break;
+                }
+            }
+            if (colon < 0) {
+                continue;
+            }
+
+            String key = content.subSequence(start, colon).toString().trim().toLowerCase(Locale.ROOT);
+            String value = content.subSequence(colon + 1, end).toString().trim();
+            switch (key) {
+                case "user-agent":
+                    if (inRules) {
+                        forAgent = false;
+                        forWildcard = false;
+                        inRules = false;
+                    }
+                    if (value.equals("*")) {
+                        forWildcard = true;
+                        wildcardMatched = true;
+                    } else if (!value.isEmpty() && productToken(value, 0, value.length()).equals(agent)) {
+                        forAgent = true;
+                        agentMatched = true;
+                    }
+                    break;
+                case "allow":
+                case "disallow":
+                    inRules = true;
+                    if (value.isEmpty()) {
+                        break;
+                    }
+                    Rule rule = new Rule(value, key.equals("allow"));
+                    if (forAgent) {
+                        agentRules.add(rule);
+                    }
+                    if (forWildcard) {
+                        wildcardRules.add(rule);
+                    }
+                    break;
+                case "crawl-delay":
+                    inRules = true;
+                    long delay = parseDelay(value);
+                    if (forAgent && delay >= 0) {
+                        agentDelay = delay;
+                    }
+                    if (forWildcard && delay >= 0) {
+                        wildcardDelay = delay;
+                    }
+                    break;
+                case "sitemap":
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        List<Rule> rules = agentMatched ? agentRules : wildcardRules;
+        long delay = agentMatched ? agentDelay : wildcardMatched ? wildcardDelay : -1;
+        Collections.sort(rules, (a, b) -> a.length != b.length ? Integer.compare(b.length, a.length) : Boolean.compare(b.allow, a.allow));
+        return new RobotsRules(rules.toArray(new Rule[0]), delay, Collections.unmodifiableList(sitemaps));
+    }
+
+    /**
+     * Returns true if the crawler may fetch the URL, judging by its escaped path and query.
+     */
+    public boolean isAllowed(URL url) {
+        String path = url.serializedPath();
+        String query = url.getQuery();
+        Target target = TARGET.get();
+        // An empty query is kept as '?', which is also how getQuery() returns it.
+        target.set(path != null ? path : "/", path != null && url.pathNeedsSlash(), "?".equals(query) ? "" : query);
+        try {
+            return isAllowed(target);
+        } finally {
+            target.set(null, false, null);
+        }
+    }
+
+    /**
+     * Returns true if the crawler may fetch the escaped path and query ('/search?q=x').
+     */
+    public boolean isAllowed(CharSequence pathAndQuery) {
+        if (rules.length == 0) {
+            return true;
+        }
+        if (isRobotsPath(pathAndQuery)) {
+            return true;
+        }
+        for (Rule rule : rules) {
+            if (rule.matches(pathAndQuery)) {
+                return rule.allow;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the Crawl-delay of the crawler in milliseconds, or -1 if there is none.
+     */
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    /**
+     * Returns the Sitemap URLs listed in the file, which apply to every crawler.
+     */
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    /**
+     * Returns the number of rules that apply to the crawler.
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    private static boolean isRobotsPath(CharSequence str) {
+        int len = ROBOTS_PATH.length();
+        if (str.length() < len || str.length() > len && str.charAt(len) != '?') {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (str.charAt(i) != ROBOTS_PATH.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the lowercase product token at the start of str[start, end): its leading letters,
+     * underscores and hyphens.
+     */
+    private static String productToken(CharSequence str, int start, int end) {
+        int i = start;
+        while (i < end && isTokenChar(str.charAt(i))) {
+            i++;
+        }
+        return str.subSequence(start, i).toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isTokenChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == '-';
+    }
+
+    private static long parseDelay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            if (seconds >= 0 && !Double.isInfinite(seconds)) {
+                return (long) (seconds * 1000);
+            }
+        } catch (NumberFormatException e) {
+            // Ignored, like any other line that can't be understood.
+        }
+        return -1;
+    }
+
+    /**
+     * Rule is an allow or disallow pattern, split into the literal pieces between its wildcards.
+     */
+    private static final class Rule {
+        private final String[] pieces;
+        private final boolean anchored;
+        private final boolean allow;
+
+        /**
+         * Length of the pattern, which decides the precedence of the rule.
+         */
+        private final int length;
+
+        private Rule(String pattern, boolean allow) {
+            String encoded = encodePattern(pattern);
+            if (!encoded.startsWith("/") && !encoded.startsWith("*")) {
+                encoded = "/" + encoded;
+            }
+            this.length = encoded.length();
+            this.allow = allow;
+            this.anchored = encoded.endsWith("$");
+            if (anchored) {
+                encoded = encoded.substring(0, encoded.length() - 1);
+            }
+            List<String> split = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i <= encoded.length(); i++) {
+                if (i == encoded.length() || encoded.charAt(i) == '*') {
+                    split.add(encoded.substring(start, i));
+                    start = i + 1;
+                }
+            }
+            this.pieces = split.toArray(new String[0]);
+        }
+
+        /**
+         * Returns true if the pattern matches a prefix of str, or all of it if the pattern is anchored.
+         * The first piece must be at the start of str and every other piece is matched leftmost after
+         * the previous one, which can't miss a match because wildcards can stretch over anything.
+         */
+        private boolean matches(CharSequence str) {
+            String first = pieces[0];
+            if (!regionMatches(str, 0, first)) {
+                return false;
+            }
+            int pos = first.length();
+            int last = pieces.length - 1;
+            if (last == 0) {
+                return !anchored || pos == str.length();
+            }
+            for (int i = 1; i < last; i++) {
+                int found = indexOf(str, pieces[i], pos);
+                if (found < 0) {
+                    return false;
+                }
+                pos = found + pieces[i].length();
+            }
+            String tail = pieces[last];
+            if (anchored) {
+                int tailStart = str.length() - tail.length();
+                return tailStart >= pos && regionMatches(str, tailStart, tail);
+            }
+            return indexOf(str, tail, pos) >= 0;
+        }
+
+        private static boolean regionMatches(CharSequence str, int start, String piece) {
+            if (start + piece.length() > str.length()) {
+                return false;
+            }
+            for (int i = 0; i < piece.length(); i++) {
+                if (str.charAt(start + i) != piece.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int indexOf(CharSequence str, String piece, int from) {
+            if (piece.isEmpty()) {
+                return from;
+            }
+            char first = piece.charAt(0);
+            for (int i = from; i <= str.length() - piece.length(); i++) {
+                if (str.charAt(i) == first && regionMatches(str, i, piece)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the pattern with characters outside ASCII percent-encoded as UTF-8 and the hex digits
+         * of escape sequences in uppercase, the way URLs are escaped.
+         */
+        private static String encodePattern(String pattern) {
+            StringBuilder sb = new StringBuilder(pattern.length());
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '%' && i + 2 < pattern.length() && isHex(pattern.charAt(i + 1)) && isHex(pattern.charAt(i + 2))) {
+                    sb.append('%').append(Character.toUpperCase(pattern.charAt(i + 1))).append(Character.toUpperCase(pattern.charAt(i + 2)));
+                    i += 2;
+                } else if (c < 0x80) {
+                    sb.append(c);
+                } else {
+                    int cpEnd = Character.isHighSurrogate(c) && i + 1 < pattern.length() ? i + 2 : i + 1;
+                    for (byte b : pattern.substring(i, cpEnd).getBytes(StandardCharsets.UTF_8)) {
+                        sb.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                                .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+                    }
+                    i = cpEnd - 1;
+                }
+            }
+            return sb.toString();
+        }
+
+        private static boolean isHex(char c) {
+            return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+        }
+    }
+
+    /**
+     * Target presents the path and query of a URL as the string '/path?query' without copying them.
+     */
+    private static final class Target implements CharSequence {
+        private String path;
+        private boolean leadingSlash;
+        private String query;
+        private int pathEnd;
+        private int length;
+
+        private void set(String path, boolean leadingSlash, String query) {
+            this.path = path;
+            this.leadingSlash = leadingSlash;
+            this.query = query;
+            this.pathEnd = path == null ? 0 : path.length() + (leadingSlash ? 1 : 0);
+            this.length = pathEnd + (query != null ? 1 + query.length() : 0);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < pathEnd) {
+                if (leadingSlash) {
+                    return index == 0 ? '/' : path.charAt(index - 1);
+                }
+                return path.charAt(index);
+            }
+            if (index == pathEnd) {
+                return '?';
+            }
+            return query.charAt(index - pathEnd - 1);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -29,6 +29,12 @@ public final class URL implements Serializable {
      */
     private transient final static URLParser URL_PARSER = new DefaultURLParser();
 
+    /**
+     * URLNormalizer with the default normalization steps, used by normalize().
+     * Do not serialize.
+     */
+    private transient final static URLNormalizer URL_NORMALIZER = new URLNormalizer();
+
     private final String scheme;
     private final String username;
     private final String password;
@@ -51,7 +57,21 @@ public final class URL implements Serializable {
      * Cached string representation of the URL.
      * Do not serialize.
      */
-    private transient String stringRepresentation;
+    private transient volatile String stringRepresentation;
+
+    /**
+     * Cached hash code of the URL, 0 until computed.
+     * Do not serialize.
+     */
+    private transient int hash;
+
+    /**
+     * Cached 128-bit fingerprint of the URL, only valid once hasFingerprint is set.
+     * Do not serialize.
+     */
+    private transient long fingerprintHigh;
+    private transient long fingerprintLow;
+    private transient volatile boolean hasFingerprint;
 
     /**
      * Protect instantiation of class. Use public parse method instead to construct URLs.
@@ -149,6 +169,39 @@ public final class URL implements Serializable {
         return port;
     }
 
+    /**
+     * Returns the public suffix ('com' or 'co.uk' or 'github.io') of the hostname according to the
+     * Public Suffix List, or null if there is no hostname or it is an IP address.
+     */
+    public String getPublicSuffix() {
+        return PublicSuffixList.getDefault().getPublicSuffix(hostname);
+    }
+
+    /**
+     * Returns the registrable domain ('example.co.uk'), the public suffix of the hostname and the label before it,
+     * or null if the hostname is itself a public suffix, an IP address or there is no hostname.
+     */
+    public String getRegistrableDomain() {
+        return PublicSuffixList.getDefault().getRegistrableDomain(hostname);
+    }
+
+    /**
+     * Returns the origin ('https://example.com') of the URL: its scheme, hostname and effective port,
+     * or null if it has no scheme or no hostname, as with an empty authority ('file:///etc/passwd').
+     * Origins are interned, so URLs of the same server usually return the same instance.
+     */
+    public Origin getOrigin() {
+        return Origin.of(this);
+    }
+
+    /**
+     * Returns true if the URL has the same scheme, hostname and effective port as the other one,
+     * without building their origins.
+     */
+    public boolean isSameOrigin(URL other) {
+        return Origin.isSameOrigin(this, other);
+    }
+
     /**
      * Returns the unescaped path ('/path/to/the;/file.html') of the URL if it exists.
      */
@@ -164,6 +217,38 @@ public final class URL implements Serializable {
         return rawPath;
     }
 
+    /**
+     * Returns a cursor over the segments of the raw path ('/a/b/' has the segments 'a', 'b' and '').
+     * Segments are found as the cursor advances and only decoded on request.
+     */
+    public PathSegments pathSegments() {
+        return new PathSegments(serializedPath(), rawPath != null);
+    }
+
+    /**
+     * Returns the number of segments of the path, 0 if the URL has no path.
+     */
+    public int getPathSegmentCount() {
+        return PathSegments.count(serializedPath());
+    }
+
+    /**
+     * Returns the unescaped segment of the path at index.
+     *
+     * @throws IndexOutOfBoundsException if the path has no such segment.
+     */
+    public String getPathSegment(int index) {
+        return PathSegments.get(serializedPath(), rawPath != null, index);
+    }
+
+    /**
+     * Returns the unescaped last segment of the path ('file.html' for '/path/to/file.html'), or null
+     * if the URL has no path.
+     */
+    public String lastPathSegment() {
+        return PathSegments.last(serializedPath(), rawPath != null);
+    }
+
     /**
      * Returns the query ('?q=foo{@literal &}bar') of the URL if it exists.
      */
@@ -230,86 +315,346 @@ public final class URL implements Serializable {
         return parsedQueryPairs;
     }
 
+    /**
+     * Returns the normalized form of the URL, using the default steps of URLNormalizer.
+     * The same instance is returned if the URL is already normalized.
+     */
+    public URL normalize() {
+        return URL_NORMALIZER.normalize(this);
+    }
+
+    /**
+     * Returns a 64-bit fingerprint of the URL, computed with MurmurHash3 directly from its components.
+     * The result is cached, so subsequent calls are free.
+     */
+    public long fingerprint64() {
+        if (!hasFingerprint) {
+            computeFingerprint();
+        }
+        return fingerprintHigh;
+    }
+
+    /**
+     * Returns a 128-bit fingerprint of the URL as two longs, computed with MurmurHash3 directly from its components.
+     * The first 64 bits are the same as the ones returned by fingerprint64().
+     */
+    public long[] fingerprint128() {
+        if (!hasFingerprint) {
+            computeFingerprint();
+        }
+        return new long[]{fingerprintHigh, fingerprintLow};
+    }
+
+    /**
+     * Returns the 64-bit fingerprint of the normalized form of the URL, so that URLs which are
+     * equivalent after normalize() share the same fingerprint.
+     */
+    public long normalizedFingerprint64() {
+        return normalize().fingerprint64();
+    }
+
+    /**
+     * Returns the key of the URL with the labels of the hostname reversed ('com.example.www:http:8080/path?q'),
+     * so that keys of the same host sort together. See ReverseDomainKey for the format.
+     *
+     * @throws IllegalArgumentException if the URL has no host or no scheme.
+     */
+    public String toReverseDomainKey() {
+        return ReverseDomainKey.toKey(this);
+    }
+
+    /**
+     * Serializes the URL in the compact form of URLCodec instead of its fields.
+     */
+    private Object writeReplace() {
+        return new URLCodec.SerializedForm(this);
+    }
+
+    private void computeFingerprint() {
+        Murmur3Hasher hasher = new Murmur3Hasher()
+                .putComponent(scheme)
+                .putComponent(username)
+                .putComponent(password)
+                .putComponent(host)
+                .putComponent(rawPath != null ? rawPath : path)
+                .putComponent(query)
+                .putComponent(fragment)
+                .putComponent(opaque);
+        hasher.finish();
+        fingerprintHigh = hasher.high();
+        fingerprintLow = hasher.low();
+        hasFingerprint = true;
+    }
+
     /**
      * Returns true if the two Objects are instances of URL and their string representations match.
+     * <p>
+     * URLs with different hash codes never match. Otherwise the parts are compared one by one, host
+     * first, without building the strings, and parts that are left out of the string representation,
+     * such as the path of an opaque URL, are ignored. Only URLs whose parts differ but could still
+     * write the same string, such as 'h.com' and '//h.com', are compared by their strings.
      */
     @Override
     public boolean equals(Object other) {
-        if (other == null) {
-            return false;
+        if (this == other) {
+            return true;
         }
         if (!(other instanceof URL)) {
             return false;
         }
-        return toString().equals(other.toString());
+        URL url = (URL) other;
+        if (hashCode() != url.hashCode()) {
+            return false;
+        }
+        return partsEquals(url) || toString().equals(url.toString());
+    }
+
+    /**
+     * Returns true if the URLs have the same parts, in which case they write the same string.
+     */
+    private boolean partsEquals(URL url) {
+        // Hosts are the most likely part to differ.
+        if (opaque == null && url.opaque == null && !Objects.equals(host, url.host)) {
+            return false;
+        }
+        if (!Objects.equals(scheme, url.scheme) || !Objects.equals(opaque, url.opaque)) {
+            return false;
+        }
+        if (opaque == null) {
+            boolean hasAuthority = scheme != null || host != null;
+            if (hasAuthority && !credentialsEquals(url) || !pathEquals(url)) {
+                return false;
+            }
+        }
+        return Objects.equals(query, url.query) && Objects.equals(fragment, url.fragment);
+    }
+
+    private boolean credentialsEquals(URL url) {
+        if (!Objects.equals(username, url.username)) {
+            return false;
+        }
+        return username == null || Objects.equals(password, url.password);
+    }
+
+    /**
+     * Returns true if both URLs write the same path, taking into account the slash that is added
+     * in front of relative paths.
+     */
+    private boolean pathEquals(URL url) {
+        String a = serializedPath();
+        String b = url.serializedPath();
+        if (a == null || b == null) {
+            return a == b;
+        }
+        boolean slashA = pathNeedsSlash();
+        boolean slashB = url.pathNeedsSlash();
+        if (slashA == slashB) {
+            return a.equals(b);
+        }
+        if (slashB) {
+            String tmp = a;
+            a = b;
+            b = tmp;
+        }
+        return b.length() == a.length() + 1 && b.charAt(0) == '/' && b.regionMatches(1, a, 0, a.length());
+    }
+
+    /**
+     * Returns the path as written by toString, without the slash it may need in front.
+     */
+    String serializedPath() {
+        return rawPath != null ? rawPath : path;
+    }
+
+    /**
+     * Returns true if toString writes a slash in front of the path.
+     */
+    boolean pathNeedsSlash() {
+        return rawPath == null && path != null && path.charAt(0) != '/' && !"*".equals(path);
     }
 
     /**
      * Returns a string representation of the all parts of the URL that are not null.
+     * <p>
+     * The exact length is computed first and the parts are copied into a single char array. Parts
+     * that don't need escaping are copied as is.
      */
     @Override
     public String toString() {
-        if (stringRepresentation != null) {
-            return stringRepresentation;
+        String cached = stringRepresentation;
+        if (cached != null) {
+            return cached;
         }
 
-        boolean hasScheme = !nullOrEmpty(scheme);
-        StringBuffer sb = new StringBuffer();
-        if (hasScheme) {
-            sb.append(scheme);
-            sb.append(":");
+        // Encoding returns the same instance when there is nothing to escape.
+        String encodedUsername = username != null ? PercentEncoder.encode(username, URLPart.CREDENTIALS) : null;
+        String encodedPassword = username != null && password != null ? PercentEncoder.encode(password, URLPart.CREDENTIALS) : null;
+        String encodedHost = host != null ? PercentEncoder.encode(host, URLPart.HOST) : null;
+        boolean hasAuthority = scheme != null || host != null;
+        boolean pathNeedsSlash = pathNeedsSlash();
+
+        int len = 0;
+        if (scheme != null) {
+            len += scheme.length() + 1;
+        }
+        if (opaque != null) {
+            len += opaque.length();
+        } else {
+            if (hasAuthority) {
+                if (scheme != null) {
+                    len += 2;
+                }
+                if (encodedUsername != null) {
+                    len += encodedUsername.length() + 1;
+                    if (encodedPassword != null) {
+                        len += encodedPassword.length() + 1;
+                    }
+                }
+                if (encodedHost != null) {
+                    len += encodedHost.length();
+                }
+            }
+            if (rawPath != null) {
+                len += rawPath.length();
+            } else if (path != null) {
+                len += path.length() + (pathNeedsSlash ? 1 : 0);
+            }
+        }
+        // Only '?' is written if that's all there is to the query string
+        boolean hasQueryValue = query != null && !"?".equals(query);
+        if (query != null) {
+            len += 1 + (hasQueryValue ? query.length() : 0);
+        }
+        if (fragment != null) {
+            len += 1 + fragment.length();
         }
-        if (!nullOrEmpty(opaque)) {
-            sb.append(opaque);
+
+        char[] buf = new char[len];
+        int i = 0;
+        if (scheme != null) {
+            i = copy(scheme, buf, i);
+            buf[i++] = ':';
+        }
+        if (opaque != null) {
+            i = copy(opaque, buf, i);
         } else {
-            if (hasScheme || !nullOrEmpty(host)) {
-                if (hasScheme) {
-                    sb.append("//");
+            if (hasAuthority) {
+                if (scheme != null) {
+                    buf[i++] = '/';
+                    buf[i++] = '/';
                 }
-                if (!nullOrEmpty(username)) {
-                    sb.append(PercentEncoder.encode(username, URLPart.CREDENTIALS));
-                    if (!nullOrEmpty(password)) {
-                        sb.append(":");
-                        sb.append(PercentEncoder.encode(password, URLPart.CREDENTIALS));
+                if (encodedUsername != null) {
+                    i = copy(encodedUsername, buf, i);
+                    if (encodedPassword != null) {
+                        buf[i++] = ':';
+                        i = copy(encodedPassword, buf, i);
                     }
-                    sb.append("@");
+                    buf[i++] = '@';
                 }
-                if (!nullOrEmpty(host)) {
-                    sb.append(PercentEncoder.encode(host, URLPart.HOST));
+                if (encodedHost != null) {
+                    i = copy(encodedHost, buf, i);
                 }
             }
-            if (!nullOrEmpty(rawPath)) {
-                sb.append(rawPath);
-            } else if (!nullOrEmpty(path)) {
-                if (path.indexOf('/') != 0 && !"*".equals(path)) {
-                    sb.append("/");
+            if (rawPath != null) {
+                i = copy(rawPath, buf, i);
+            } else if (path != null) {
+                if (pathNeedsSlash) {
+                    buf[i++] = '/';
                 }
-                sb.append(path);
+                i = copy(path, buf, i);
             }
         }
-        if (!nullOrEmpty(query)) {
-            sb.append("?");
-            // Only append '?' if that's all there is to the query string
-            if (!"?".equals(query)) {
-                sb.append(query);
+        if (query != null) {
+            buf[i++] = '?';
+            if (hasQueryValue) {
+                i = copy(query, buf, i);
             }
         }
-        if (!nullOrEmpty(fragment)) {
-            sb.append("#");
-            sb.append(fragment);
+        if (fragment != null) {
+            buf[i++] = '#';
+            copy(fragment, buf, i);
         }
 
-        stringRepresentation = sb.toString();
+        cached = new String(buf);
+        stringRepresentation = cached;
+        return cached;
+    }
 
-        return stringRepresentation;
+    /**
+     * Copies the string into buf at the provided offset and returns the offset after it.
+     */
+    private static int copy(String str, char[] buf, int offset) {
+        str.getChars(0, str.length(), buf, offset);
+        return offset + str.length();
     }
 
     /**
-     * Returns the hash code of the URL.
+     * Returns the hash code of the URL, the same as that of its string representation. It's computed
+     * from the parts that toString writes, without building the string, and cached.
      */
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        int h = hash;
+        if (h != 0) {
+            return h;
+        }
+
+        String str = stringRepresentation;
+        if (str != null) {
+            h = str.hashCode();
+        } else {
+            if (scheme != null) {
+                h = 31 * hashOf(h, scheme) + ':';
+            }
+            if (opaque != null) {
+                h = hashOf(h, opaque);
+            } else {
+                if (scheme != null || host != null) {
+                    if (scheme != null) {
+                        h = 31 * (31 * h + '/') + '/';
+                    }
+                    if (username != null) {
+                        h = hashOf(h, PercentEncoder.encode(username, URLPart.CREDENTIALS));
+                        if (password != null) {
+                            h = hashOf(31 * h + ':', PercentEncoder.encode(password, URLPart.CREDENTIALS));
+                        }
+                        h = 31 * h + '@';
+                    }
+                    if (host != null) {
+                        h = hashOf(h, PercentEncoder.encode(host, URLPart.HOST));
+                    }
+                }
+                if (rawPath != null) {
+                    h = hashOf(h, rawPath);
+                } else if (path != null) {
+                    h = hashOf(pathNeedsSlash() ? 31 * h + '/' : h, path);
+                }
+            }
+            if (query != null) {
+                h = 31 * h + '?';
+                if (!"?".equals(query)) {
+                    h = hashOf(h, query);
+                }
+            }
+            if (fragment != null) {
+                h = hashOf(31 * h + '#', fragment);
+            }
+        }
+        if (h == 0) {
+            h = 1;
+        }
+        hash = h;
+        return h;
+    }
+
+    /**
+     * Returns the hash of a string that starts with a string of hash h and is followed by str.
+     */
+    private static int hashOf(int h, String str) {
+        for (int i = 0; i < str.length(); i++) {
+            h = 31 * h + str.charAt(i);
+        }
+        return h;
     }
 
     /**
@@ -333,9 +678,21 @@ public final class URL implements Serializable {
         return !nullOrEmpty(scheme);
     }
 
+    /**
+     * Returns the resolved reference URL using the instance URL as a base.
+     * <p>
+     * Fragment, query and path references are resolved straight from the string, without parsing it
+     * into a URL first. References with a scheme or an authority are parsed and then resolved. To
+     * resolve many references against the same base, use a URLResolver.
+     *
+     * @throws MalformedURLException        if the reference could not be parsed.
+     * @throws InvalidURLReferenceException if the base URL is not absolute.
+     */
     public URL resolveReference(String ref) throws MalformedURLException, InvalidURLReferenceException {
-        URL url = URL_PARSER.parse(ref);
-        return resolveReference(url);
+        if (!isAbsolute()) {
+            throw new InvalidURLReferenceException("base url is not absolute");
+        }
+        return new URLResolver(this).resolve(ref);
     }
 
     /**
@@ -393,7 +750,7 @@ public final class URL implements Serializable {
     /**
      * Returns the full host (hostname:port), maps to null if none are set.
      */
-    private static String mergeHostPortIfSet(String hostname, Integer port) {
+    static String mergeHostPortIfSet(String hostname, Integer port) {
         StringBuilder sb = new StringBuilder();
         boolean exists = false;
         if (hostname != null) {
@@ -414,7 +771,7 @@ public final class URL implements Serializable {
     /**
      * Returns the hostname part of the host ('www.example.com' or '192.168.0.1' or '[fde2:d7de:302::]') if it exists.
      */
-    private static String extractHostname(String host) {
+    static String extractHostname(String host) {
         if (host != null) {
             int separator = host.lastIndexOf(":");
             if (separator > -1) {
@@ -428,7 +785,7 @@ public final class URL implements Serializable {
     /**
      * Returns the port part of the host (i.e. 8080 or 443 or 3000) if it exists.
      */
-    private static Integer extractPort(String host) {
+    static Integer extractPort(String host) {
         if (host != null) {
             int separator = host.lastIndexOf(":");
             if (separator > -1) {
@@ -0,0 +1,505 @@
+package com.anthonynsimon.url;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.anthonynsimon.url.URLBatchWriter.*;
+
+/**
+ * URLBatchReader reads a batch of URLs written by URLBatchWriter. Columns are only decoded when one
+ * of their values is first asked for, so reading the hosts of a batch never touches its paths and
+ * never builds URL objects.
+ * <p>
+ * Dictionary-encoded columns also give access to the index of the value of each row, so that rows
+ * can be grouped or counted by host without comparing strings:
+ * <p>
+ * int[] counts = new int[reader.getHostnameDictionarySize()];
+ * for (int row = 0; row &lt; reader.size(); row++) {
+ *     int id = reader.getHostnameId(row);
+ *     if (id &gt;= 0) {
+ *         counts[id]++;
+ *     }
+ * }
+ * <p>
+ * A reader is immutable once created and can be shared between threads.
+ */
+public final class URLBatchReader {
+    private final byte[] bytes;
+    private final int rows;
+    private final int[] columnStart;
+    private final int[] columnEnd;
+    private final AtomicReferenceArray<Object> columns = new AtomicReferenceArray<>(COLUMNS);
+
+    /**
+     * Creates a reader of the batch. Only the layout of the columns is read until their values are
+     * asked for.
+     *
+     * @throws IllegalArgumentException if the bytes are not a batch of URLs.
+     */
+    public URLBatchReader(byte[] bytes) {
+        this.bytes = bytes;
+        Cursor in = new Cursor(bytes, 0, bytes.length);
+        if (in.get() != MAGIC || in.get() != VERSION) {
+            throw new IllegalArgumentException("not a url batch or unknown version");
+        }
+        this.rows = in.getVarint();
+        // Dictionary columns store an id for every row, so there is at least one byte per row.
+        if (rows < 0 || rows > bytes.length) {
+            throw new IllegalArgumentException("invalid row count in url batch: " + rows);
+        }
+        this.columnStart = new int[COLUMNS];
+        this.columnEnd = new int[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            int len = in.getVarint();
+            columnStart[column] = in.pos;
+            in.skip(len);
+            columnEnd[column] = in.pos;
+        }
+        if (in.pos != bytes.length) {
+            throw new IllegalArgumentException("trailing bytes after url batch");
+        }
+    }
+
+    /**
+     * Returns the number of URLs in the batch.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Returns the URL of the row, built from all of its columns.
+     */
+    public URL get(int row) {
+        String rawPath = getRawPath(row);
+        String path = presence(PATH_IS_RAW_PATH).get(row) ? rawPath : string(PATH, row);
+        String host = string(HOST, row);
+        if (host != null) {
+            return new URL(getScheme(row), getUsername(row), getPassword(row), host, path, rawPath,
+                    getQuery(row), getFragment(row), getOpaque(row));
+        }
+        return new URL(getScheme(row), getUsername(row), getPassword(row), getHostname(row), getPort(row),
+                path, rawPath, getQuery(row), getFragment(row), getOpaque(row));
+    }
+
+    /**
+     * Returns the scheme of the row, as URL.getScheme().
+     */
+    public String getScheme(int row) {
+        return (String) dictionary(SCHEME).get(row);
+    }
+
+    /**
+     * Returns the username of the row, as URL.getUsername().
+     */
+    public String getUsername(int row) {
+        return string(USERNAME, row);
+    }
+
+    /**
+     * Returns the password of the row, as URL.getPassword().
+     */
+    public String getPassword(int row) {
+        return string(PASSWORD, row);
+    }
+
+    /**
+     * Returns the host of the row, as URL.getHost().
+     */
+    public String getHost(int row) {
+        String host = string(HOST, row);
+        if (host != null) {
+            return !host.isEmpty() ? host : null;
+        }
+        return URL.mergeHostPortIfSet(getHostname(row), getPort(row));
+    }
+
+    /**
+     * Returns the hostname of the row, as URL.getHostname().
+     */
+    public String getHostname(int row) {
+        return (String) dictionary(HOSTNAME).get(row);
+    }
+
+    /**
+     * Returns the port of the row, as URL.getPort().
+     */
+    public Integer getPort(int row) {
+        return (Integer) dictionary(PORT).get(row);
+    }
+
+    /**
+     * Returns the path of the row, as URL.getPath().
+     */
+    public String getPath(int row) {
+        return presence(PATH_IS_RAW_PATH).get(row) ? getRawPath(row) : string(PATH, row);
+    }
+
+    /**
+     * Returns the raw path of the row, as URL.getRawPath().
+     */
+    public String getRawPath(int row) {
+        return string(RAW_PATH, row);
+    }
+
+    /**
+     * Returns the query of the row, as URL.getQuery().
+     */
+    public String getQuery(int row) {
+        return string(QUERY, row);
+    }
+
+    /**
+     * Returns the fragment of the row, as URL.getFragment().
+     */
+    public String getFragment(int row) {
+        return string(FRAGMENT, row);
+    }
+
+    /**
+     * Returns the opaque part of the row, as URL.getOpaque().
+     */
+    public String getOpaque(int row) {
+        return string(OPAQUE, row);
+    }
+
+    /**
+     * Returns the index of the scheme of the row in the scheme dictionary, or -1 if it has none.
+     */
+    public int getSchemeId(int row) {
+        return dictionary(SCHEME).id(row);
+    }
+
+    /**
+     * Returns the number of distinct schemes.
+     */
+    public int getSchemeDictionarySize() {
+        return dictionary(SCHEME).values.length;
+    }
+
+    /**
+     * Returns the scheme at index of the scheme dictionary.
+     */
+    public String getSchemeDictionaryValue(int id) {
+        return (String) dictionary(SCHEME).values[id];
+    }
+
+    /**
+     * Returns the index of the hostname of the row in the hostname dictionary, or -1 if it has none.
+     */
+    public int getHostnameId(int row) {
+        return dictionary(HOSTNAME).id(row);
+    }
+
+    /**
+     * Returns the number of distinct hostnames.
+     */
+    public int getHostnameDictionarySize() {
+        return dictionary(HOSTNAME).values.length;
+    }
+
+    /**
+     * Returns the hostname at index of the hostname dictionary.
+     */
+    public String getHostnameDictionaryValue(int id) {
+        return (String) dictionary(HOSTNAME).values[id];
+    }
+
+    /**
+     * Returns the index of the port of the row in the port dictionary, or -1 if it has none.
+     */
+    public int getPortId(int row) {
+        return dictionary(PORT).id(row);
+    }
+
+    /**
+     * Returns the number of distinct ports.
+     */
+    public int getPortDictionarySize() {
+        return dictionary(PORT).values.length;
+    }
+
+    /**
+     * Returns the port at index of the port dictionary.
+     */
+    public int getPortDictionaryValue(int id) {
+        return (Integer) dictionary(PORT).values[id];
+    }
+
+    private String string(int column, int row) {
+        return frontCoded(column).get(row);
+    }
+
+    /**
+     * Returns the decoded column. Threads that race to decode a column may each decode it, but the
+     * decoded columns are immutable and equal, so it doesn't matter which one is kept.
+     */
+    private Presence presence(int column) {
+        Presence decoded = (Presence) load(column);
+        if (decoded == null) {
+            decoded = new Presence(new Cursor(bytes, columnStart[column], columnEnd[column]), rows);
+            store(column, decoded);
+        }
+        return decoded;
+    }
+
+    private DictionaryColumn dictionary(int column) {
+        DictionaryColumn decoded = (DictionaryColumn) load(column);
+        if (decoded == null) {
+            decoded = new DictionaryColumn(new Cursor(bytes, columnStart[column], columnEnd[column]), rows, column == PORT);
+            store(column, decoded);
+        }
+        return decoded;
+    }
+
+    private FrontCodedColumn frontCoded(int column) {
+        FrontCodedColumn decoded = (FrontCodedColumn) load(column);
+        if (decoded == null) {
+            decoded = new FrontCodedColumn(new Cursor(bytes, columnStart[column], columnEnd[column]), rows);
+            store(column, decoded);
+        }
+        return decoded;
+    }
+
+    private Object load(int column) {
+        return columns.get(column);
+    }
+
+    private void store(int column, Object decoded) {
+        columns.set(column, decoded);
+    }
+
+    private static void checkRow(int row, int rows) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + rows);
+        }
+    }
+
+    /**
+     * Presence is the bitmap of the rows that have a value in a column, with the number of values
+     * before every 64 rows so that a row can be mapped to its value in constant time.
+     */
+    private static final class Presence {
+        private final int rows;
+        private final byte kind;
+        private final long[] words;
+        private final int[] rankBefore;
+
+        private Presence(Cursor in, int rows) {
+            this.rows = rows;
+            this.kind = in.get();
+            if (kind == SOME_PRESENT) {
+                words = new long[(rows + 63) >>> 6];
+                rankBefore = new int[words.length];
+                for (int i = 0; i < (rows + 7) >>> 3; i++) {
+                    words[i >>> 3] |= (in.get() & 0xFFL) << ((i & 7) << 3);
+                }
+                int rank = 0;
+                for (int i = 0; i < words.length; i++) {
+                    rankBefore[i] = rank;
+                    rank += Long.bitCount(words[i]);
+                }
+            } else if (kind == NONE_PRESENT || kind == ALL_PRESENT) {
+                words = null;
+                rankBefore = null;
+            } else {
+                throw new IllegalArgumentException("invalid column in url batch");
+            }
+        }
+
+        private boolean get(int row) {
+            checkRow(row, rows);
+            if (kind != SOME_PRESENT) {
+                return kind == ALL_PRESENT;
+            }
+            return (words[row >>> 6] & 1L << row) != 0;
+        }
+
+        /**
+         * Returns the number of rows with a value before the row.
+         */
+        private int rank(int row) {
+            if (kind != SOME_PRESENT) {
+                return kind == ALL_PRESENT ? row : 0;
+            }
+            return rankBefore[row >>> 6] + Long.bitCount(words[row >>> 6] & ((1L << row) - 1));
+        }
+    }
+
+    /**
+     * DictionaryColumn holds the distinct values of a column and the index of the value of each row.
+     */
+    private static final class DictionaryColumn {
+        private final Presence presence;
+        private final Object[] values;
+        private final byte[] bytes;
+        private final int idsStart;
+        private final int width;
+
+        private DictionaryColumn(Cursor in, int rows, boolean integers) {
+            this.presence = new Presence(in, rows);
+            this.values = new Object[in.getCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = integers ? (Object) in.getVarint() : in.getString(null);
+            }
+            this.width = in.get();
+            if (width != idWidth(values.length)) {
+                throw new IllegalArgumentException("invalid column in url batch");
+            }
+            this.bytes = in.bytes;
+            this.idsStart = in.pos;
+            if ((long) rows * width > in.end - in.pos) {
+                throw new IllegalArgumentException("truncated url batch");
+            }
+            in.skip(rows * width);
+        }
+
+        private int id(int row) {
+            if (!presence.get(row)) {
+                return -1;
+            }
+            int offset = idsStart + row * width;
+            int id = 0;
+            for (int b = 0; b < width; b++) {
+                id |= (bytes[offset + b] & 0xFF) << (b << 3);
+            }
+            if (id >= values.length) {
+                throw new IllegalArgumentException("invalid column in url batch");
+            }
+            return id;
+        }
+
+        private Object get(int row) {
+            int id = id(row);
+            return id >= 0 ? values[id] : null;
+        }
+    }
+
+    /**
+     * FrontCodedColumn holds the values of a string column in blocks, each value stored as the
+     * length of its prefix shared with the previous one and the rest of it.
+     */
+    private static final class FrontCodedColumn {
+        private final Presence presence;
+        private final byte[] bytes;
+        private final int[] blockStart;
+        private final int dataEnd;
+
+        private FrontCodedColumn(Cursor in, int rows) {
+            this.presence = new Presence(in, rows);
+            int count = rows == 0 ? 0 : presence.rank(rows - 1) + (presence.get(rows - 1) ? 1 : 0);
+            int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            if (blocks > (in.end - in.pos) / 4) {
+                throw new IllegalArgumentException("truncated url batch");
+            }
+            this.blockStart = new int[blocks];
+            int dataStart = in.pos + 4 * blocks;
+            for (int i = 0; i < blocks; i++) {
+                int offset = in.getInt();
+                if (offset < 0 || offset >= in.end - dataStart) {
+                    throw new IllegalArgumentException("invalid block offset in url batch");
+                }
+                blockStart[i] = dataStart + offset;
+            }
+            this.bytes = in.bytes;
+            this.dataEnd = in.end;
+        }
+
+        private String get(int row) {
+            if (!presence.get(row)) {
+                return null;
+            }
+            int index = presence.rank(row);
+            Cursor in = new Cursor(bytes, blockStart[index / BLOCK_SIZE], dataEnd);
+            StringBuilder value = new StringBuilder();
+            for (int i = index - index % BLOCK_SIZE; i <= index; i++) {
+                int prefix = in.getVarint();
+                if (prefix > value.length()) {
+                    throw new IllegalArgumentException("invalid column in url batch");
+                }
+                value.setLength(prefix);
+                in.getString(value);
+            }
+            return value.toString();
+        }
+    }
+
+    /**
+     * Cursor reads the encoded values of bytes[pos, end).
+     */
+    private static final class Cursor {
+        private final byte[] bytes;
+        private final int end;
+        private int pos;
+
+        private Cursor(byte[] bytes, int pos, int end) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        private byte get() {
+            if (pos >= end) {
+                throw new IllegalArgumentException("truncated url batch");
+            }
+            return bytes[pos++];
+        }
+
+        private void skip(int len) {
+            if (len < 0 || len > end - pos) {
+                throw new IllegalArgumentException("truncated url batch");
+            }
+            pos += len;
+        }
+
+        private int getInt() {
+            int value = 0;
+            for (int b = 0; b < 4; b++) {
+                value |= (get() & 0xFF) << (b << 3);
+            }
+            return value;
+        }
+
+        /**
+         * Reads the number of values that follow, each taking at least one byte.
+         */
+        private int getCount() {
+            int count = getVarint();
+            if (count < 0 || count > end - pos) {
+                throw new IllegalArgumentException("invalid count in url batch: " + count);
+            }
+            return count;
+        }
+
+        private int getVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("invalid varint in url batch");
+        }
+
+        /**
+         * Reads a string and appends it to sb, or returns it if sb is null.
+         */
+        private String getString(StringBuilder sb) {
+            int header = getVarint();
+            int len = header >>> 1;
+            if (len < 0 || len > end - pos) {
+                throw new IllegalArgumentException("truncated url batch");
+            }
+            StringBuilder out = sb != null ? sb : new StringBuilder(len);
+            for (int i = 0; i < len; i++) {
+                int c = (header & 1) == 0 ? get() : getVarint();
+                if (c < 0 || c > Character.MAX_VALUE) {
+                    throw new IllegalArgumentException("invalid character in url batch");
+                }
+                out.append((char) c);
+            }
+            return sb != null ? null : out.toString();
+        }
+    }
+}
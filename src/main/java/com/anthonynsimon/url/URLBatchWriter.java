@@ -0,0 +1,351 @@
+package com.anthonynsimon.url;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URLBatchWriter stores a batch of URLs column by column, to be read back with URLBatchReader. Each
+ * component of the URLs is a column, so a query that only needs the hosts reads only the host
+ * column, and similar values are stored together:
+ * <p>
+ * The scheme, hostname and port columns are dictionary-encoded: every distinct value is stored once
+ * and rows store its index in fixed width.
+ * <p>
+ * Other string columns are front-coded: each value is stored as the length of the prefix it shares
+ * with the previous one and the rest of it. Every 16 values the prefix restarts, so a value can be
+ * found without decoding the whole column.
+ * <p>
+ * Every column starts with a bitmap of the rows that have a value, omitted if all or none do.
+ * <p>
+ * The layout is a magic number, a version and the number of rows, followed by the columns, each
+ * prefixed by its length in bytes. Lengths and counts are varints and strings are a varint header
+ * with the length shifted left by one, followed by one byte per character for ASCII strings, or by
+ * one varint per character, with the lowest bit of the header set, otherwise.
+ */
+public final class URLBatchWriter {
+    static final byte MAGIC = (byte) 0xB7;
+    static final byte VERSION = 1;
+
+    static final int SCHEME = 0;
+    static final int USERNAME = 1;
+    static final int PASSWORD = 2;
+    static final int HOSTNAME = 3;
+    static final int PORT = 4;
+
+    /**
+     * The host of the rows whose host isn't made of their hostname and port, which is rare. Rows with
+     * an empty authority ('file:///a') have no host but an empty hostname, and store an empty host.
+     */
+    static final int HOST = 5;
+    static final int RAW_PATH = 6;
+
+    /**
+     * Bitmap of the rows whose path is the same as their raw path, so it's not stored again.
+     */
+    static final int PATH_IS_RAW_PATH = 7;
+    static final int PATH = 8;
+    static final int QUERY = 9;
+    static final int FRAGMENT = 10;
+    static final int OPAQUE = 11;
+    static final int COLUMNS = 12;
+
+    static final byte NONE_PRESENT = 0;
+    static final byte ALL_PRESENT = 1;
+    static final byte SOME_PRESENT = 2;
+
+    static final int BLOCK_SIZE = 16;
+
+    private final List<URL> urls = new ArrayList<>();
+
+    /**
+     * Adds the URL to the batch.
+     */
+    public URLBatchWriter add(URL url) {
+        if (url == null) {
+            throw new IllegalArgumentException("url must not be null");
+        }
+        urls.add(url);
+        return this;
+    }
+
+    /**
+     * Adds every URL to the batch.
+     */
+    public URLBatchWriter addAll(Iterable<URL> urls) {
+        for (URL url : urls) {
+            add(url);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of URLs in the batch.
+     */
+    public int size() {
+        return urls.size();
+    }
+
+    /**
+     * Removes all the URLs from the batch.
+     */
+    public void clear() {
+        urls.clear();
+    }
+
+    /**
+     * Returns the batch encoded in columns.
+     */
+    public byte[] toByteArray() {
+        Buffer out = new Buffer();
+        out.put(MAGIC);
+        out.put(VERSION);
+        out.putVarint(urls.size());
+        for (int column = 0; column < COLUMNS; column++) {
+            Buffer encoded = new Buffer();
+            switch (column) {
+                case SCHEME:
+                case HOSTNAME:
+                case PORT:
+                    writeDictionary(encoded, column);
+                    break;
+                case PATH_IS_RAW_PATH:
+                    boolean[] present = new boolean[urls.size()];
+                    for (int i = 0; i < present.length; i++) {
+                        present[i] = value(urls.get(i), column) != null;
+                    }
+                    writePresence(encoded, present);
+                    break;
+                default:
+                    writeFrontCoded(encoded, column);
+                    break;
+            }
+            out.putVarint(encoded.size);
+            out.put(encoded.bytes, 0, encoded.size);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the encoded batch to the stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(toByteArray());
+    }
+
+    /**
+     * Returns the value of the column for the URL, or null if it has none.
+     */
+    private static Object value(URL url, int column) {
+        switch (column) {
+            case SCHEME:
+                return url.getScheme();
+            case USERNAME:
+                return url.getUsername();
+            case PASSWORD:
+                return url.getPassword();
+            case HOSTNAME:
+                return url.getHostname();
+            case PORT:
+                return url.getPort();
+            case HOST:
+                String host = url.getHost();
+                if (host == null) {
+                    return url.getHostname() != null || url.getPort() != null ? "" : null;
+                }
+                return host.equals(URL.mergeHostPortIfSet(url.getHostname(), url.getPort())) ? null : host;
+            case RAW_PATH:
+                return url.getRawPath();
+            case PATH_IS_RAW_PATH:
+                return url.getRawPath() != null && url.getRawPath().equals(url.getPath()) ? Boolean.TRUE : null;
+            case PATH:
+                return value(url, PATH_IS_RAW_PATH) != null ? null : url.getPath();
+            case QUERY:
+                return url.getQuery();
+            case FRAGMENT:
+                return url.getFragment();
+            case OPAQUE:
+                return url.getOpaque();
+            default:
+                throw new IllegalArgumentException("unknown column: " + column);
+        }
+    }
+
+    private void writeDictionary(Buffer out, int column) {
+        int rows = urls.size();
+        boolean[] present = new boolean[rows];
+        int[] ids = new int[rows];
+        Map<Object, Integer> dictionary = new HashMap<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Object value = value(urls.get(i), column);
+            if (value == null) {
+                continue;
+            }
+            present[i] = true;
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = values.size();
+                dictionary.put(value, id);
+                values.add(value);
+            }
+            ids[i] = id;
+        }
+        writePresence(out, present);
+        out.putVarint(values.size());
+        for (Object value : values) {
+            if (value instanceof Integer) {
+                out.putVarint((Integer) value);
+            } else {
+                out.putString((String) value);
+            }
+        }
+        int width = idWidth(values.size());
+        out.put((byte) width);
+        for (int id : ids) {
+            for (int b = 0; b < width; b++) {
+                out.put((byte) (id >>> (b << 3)));
+            }
+        }
+    }
+
+    private void writeFrontCoded(Buffer out, int column) {
+        int rows = urls.size();
+        boolean[] present = new boolean[rows];
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            String value = (String) value(urls.get(i), column);
+            if (value != null) {
+                present[i] = true;
+                values.add(value);
+            }
+        }
+        writePresence(out, present);
+        if (values.isEmpty()) {
+            return;
+        }
+
+        Buffer data = new Buffer();
+        int blocks = (values.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blockStart = new int[blocks];
+        String previous = "";
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i);
+            int prefix = 0;
+            if (i % BLOCK_SIZE == 0) {
+                blockStart[i / BLOCK_SIZE] = data.size;
+            } else {
+                int max = Math.min(previous.length(), value.length());
+                while (prefix < max && previous.charAt(prefix) == value.charAt(prefix)) {
+                    prefix++;
+                }
+            }
+            data.putVarint(prefix);
+            data.putString(value, prefix);
+            previous = value;
+        }
+        for (int start : blockStart) {
+            out.putInt(start);
+        }
+        out.put(data.bytes, 0, data.size);
+    }
+
+    private static void writePresence(Buffer out, boolean[] present) {
+        int count = 0;
+        for (boolean p : present) {
+            count += p ? 1 : 0;
+        }
+        if (count == 0) {
+            out.put(NONE_PRESENT);
+        } else if (count == present.length) {
+            out.put(ALL_PRESENT);
+        } else {
+            out.put(SOME_PRESENT);
+            for (int i = 0; i < present.length; i += 8) {
+                int b = 0;
+                for (int j = 0; j < 8 && i + j < present.length; j++) {
+                    b |= present[i + j] ? 1 << j : 0;
+                }
+                out.put((byte) b);
+            }
+        }
+    }
+
+    static int idWidth(int dictionarySize) {
+        if (dictionarySize <= 1 << 8) {
+            return 1;
+        }
+        return dictionarySize <= 1 << 16 ? 2 : 4;
+    }
+
+    /**
+     * Buffer is a growable byte array.
+     */
+    private static final class Buffer {
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        private void put(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        private void put(byte[] src, int offset, int len) {
+            ensure(len);
+            System.arraycopy(src, offset, bytes, size, len);
+            size += len;
+        }
+
+        private void putInt(int value) {
+            ensure(4);
+            for (int b = 0; b < 4; b++) {
+                bytes[size++] = (byte) (value >>> (b << 3));
+            }
+        }
+
+        private void putVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private void putString(String str) {
+            putString(str, 0);
+        }
+
+        /**
+         * Writes str[start:] with the string header.
+         */
+        private void putString(String str, int start) {
+            int len = str.length() - start;
+            boolean ascii = true;
+            for (int i = start; i < str.length() && ascii; i++) {
+                ascii = str.charAt(i) < 0x80;
+            }
+            putVarint(len << 1 | (ascii ? 0 : 1));
+            for (int i = start; i < str.length(); i++) {
+                if (ascii) {
+                    put((byte) str.charAt(i));
+                } else {
+                    putVarint(str.charAt(i));
+                }
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
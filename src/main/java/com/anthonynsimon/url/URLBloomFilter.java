@@ -0,0 +1,184 @@
+package com.anthonynsimon.url;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * URLBloomFilter is a blocked Bloom filter of URL fingerprints stored off-heap, meant for
+ * "have we seen this URL" tests on crawl-sized sets where false positives are acceptable.
+ * <p>
+ * All the bits set for a fingerprint fall into the same 512-bit block (one cache line), so each
+ * lookup touches a single block of memory. The filter can be written to a file and later
+ * memory-mapped back with open(), in which case further changes go to the file.
+ * <p>
+ * It is safe to use from multiple threads. Inserts into the same block are serialized through
+ * striped locks, lookups do not lock.
+ */
+public final class URLBloomFilter {
+    private static final int MAGIC = 0x4A554246;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * Long.SIZE;
+    private static final int MAX_HASHES = 16;
+    private static final int LOCK_STRIPES = 1024;
+
+    private final OffHeapLongArray words;
+    private final long blocks;
+    private final int hashes;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private URLBloomFilter(OffHeapLongArray words, long blocks, int hashes) {
+        this.words = words;
+        this.blocks = blocks;
+        this.hashes = hashes;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns a new empty filter sized for the expected number of insertions and false positive rate.
+     */
+    public static URLBloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("false positive rate must be between 0 and 1");
+        }
+        double bits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long blocks = Math.max(1, (long) Math.ceil(bits / BITS_PER_BLOCK));
+        int hashes = (int) Math.round(bits / expectedInsertions * Math.log(2));
+        hashes = Math.max(1, Math.min(MAX_HASHES, hashes));
+        return new URLBloomFilter(OffHeapLongArray.allocate(blocks * WORDS_PER_BLOCK), blocks, hashes);
+    }
+
+    /**
+     * Returns the filter stored in the file, memory-mapped so that changes are written back to it.
+     *
+     * @throws IOException if the file could not be read or is not a filter written by writeTo.
+     */
+    public static URLBloomFilter open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not a URL bloom filter file: " + file);
+            }
+            int hashes = header.getInt();
+            long blocks = header.getLong();
+            if (hashes < 1 || hashes > MAX_HASHES || blocks < 1
+                    || channel.size() < HEADER_SIZE + blocks * WORDS_PER_BLOCK * Long.BYTES) {
+                throw new IOException("corrupted URL bloom filter file: " + file);
+            }
+            OffHeapLongArray words = OffHeapLongArray.map(file, channel, HEADER_SIZE, blocks * WORDS_PER_BLOCK);
+            return new URLBloomFilter(words, blocks, hashes);
+        }
+    }
+
+    /**
+     * Adds the fingerprint of the URL to the filter. Returns true if the filter changed, which means
+     * that the URL was definitely not seen before.
+     */
+    public boolean put(URL url) {
+        return put(url.fingerprint64());
+    }
+
+    /**
+     * Adds the fingerprint to the filter. Returns true if the filter changed.
+     */
+    public boolean put(long fingerprint) {
+        long block = block(fingerprint);
+        long base = block * WORDS_PER_BLOCK;
+        long mixed = Murmur3Hasher.fmix64(fingerprint);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+
+        boolean changed = false;
+        synchronized (locks[(int) (block & (LOCK_STRIPES - 1))]) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & (BITS_PER_BLOCK - 1);
+                long index = base + (bit >>> 6);
+                long word = words.get(index);
+                long mask = 1L << bit;
+                if ((word & mask) == 0) {
+                    words.set(index, word | mask);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns true if the URL might have been added to the filter, false if it definitely wasn't.
+     */
+    public boolean mightContain(URL url) {
+        return mightContain(url.fingerprint64());
+    }
+
+    /**
+     * Returns true if the fingerprint might have been added to the filter, false if it definitely wasn't.
+     */
+    public boolean mightContain(long fingerprint) {
+        long base = block(fingerprint) * WORDS_PER_BLOCK;
+        long mixed = Murmur3Hasher.fmix64(fingerprint);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BITS_PER_BLOCK - 1);
+            if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bits of the filter.
+     */
+    public long bitSize() {
+        return blocks * BITS_PER_BLOCK;
+    }
+
+    /**
+     * Returns the number of bits set per inserted fingerprint.
+     */
+    public int hashCount() {
+        return hashes;
+    }
+
+    /**
+     * Writes the filter to the file, replacing it if it exists. It can be loaded again with open().
+     * Writing to the file it was opened from only flushes the pending changes.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(hashes).putLong(blocks);
+        header.clear();
+        words.writeTo(file, header);
+    }
+
+    /**
+     * Forces pending changes to be written to the file if the filter was opened from one.
+     */
+    public void flush() {
+        words.force();
+    }
+
+    private long block(long fingerprint) {
+        return Long.remainderUnsigned(fingerprint, blocks);
+    }
+}
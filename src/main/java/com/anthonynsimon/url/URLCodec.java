@@ -0,0 +1,381 @@
+package com.anthonynsimon.url;
+
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * URLCodec encodes URLs in a compact binary form, for shipping them between processes and storing
+ * them in caches. It's also the form URLs take in Java serialization.
+ * <p>
+ * An encoded URL is a version byte, a varint bitmask of the components that are present, and then
+ * each present component as a varint header followed by its characters. ASCII strings, which most
+ * URL components are, take one byte per character: the header is the length shifted left by one.
+ * Other strings have the lowest bit of the header set and each character written as a varint, which
+ * keeps any Java string intact, unpaired surrogates included.
+ * <p>
+ * The hostname and port are not written when they can be derived from the host, and the path is
+ * not written when it's the same as the raw path.
+ */
+public final class URLCodec {
+    private static final byte VERSION = 1;
+
+    private static final int SCHEME = 1;
+    private static final int USERNAME = 1 << 1;
+    private static final int PASSWORD = 1 << 2;
+    private static final int HOST = 1 << 3;
+    private static final int HOSTNAME = 1 << 4;
+    private static final int PORT = 1 << 5;
+    private static final int PATH = 1 << 6;
+    private static final int RAW_PATH = 1 << 7;
+    private static final int PATH_IS_RAW_PATH = 1 << 8;
+    private static final int QUERY = 1 << 9;
+    private static final int FRAGMENT = 1 << 10;
+    private static final int OPAQUE = 1 << 11;
+    private static final int ALL = (1 << 12) - 1;
+
+    private URLCodec() {
+    }
+
+    /**
+     * Writes the URL to the buffer and returns the number of bytes written.
+     *
+     * @throws BufferOverflowException if the buffer has not enough space left, in which case nothing
+     *                                 is written.
+     */
+    public static int encode(URL url, ByteBuffer out) {
+        int size = encodedSize(url);
+        if (out.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        int mask = mask(url);
+        out.put(VERSION);
+        writeVarint(out, mask);
+        writeString(out, url.getScheme());
+        writeString(out, url.getUsername());
+        writeString(out, url.getPassword());
+        if ((mask & HOST) != 0) {
+            writeString(out, hostOf(url));
+        } else {
+            writeString(out, url.getHostname());
+            if (url.getPort() != null) {
+                writeVarint(out, url.getPort());
+            }
+        }
+        if ((mask & PATH_IS_RAW_PATH) == 0) {
+            writeString(out, url.getPath());
+        }
+        writeString(out, url.getRawPath());
+        writeString(out, url.getQuery());
+        writeString(out, url.getFragment());
+        writeString(out, url.getOpaque());
+        return size;
+    }
+
+    /**
+     * Returns the URL encoded as a byte array.
+     */
+    public static byte[] toBytes(URL url) {
+        byte[] bytes = new byte[encodedSize(url)];
+        encode(url, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Returns the number of bytes the URL takes once encoded.
+     */
+    public static int encodedSize(URL url) {
+        int mask = mask(url);
+        int size = 1 + varintSize(mask)
+                + stringSize(url.getScheme())
+                + stringSize(url.getUsername())
+                + stringSize(url.getPassword())
+                + stringSize(url.getRawPath())
+                + stringSize(url.getQuery())
+                + stringSize(url.getFragment())
+                + stringSize(url.getOpaque());
+        if ((mask & HOST) != 0) {
+            size += stringSize(hostOf(url));
+        } else {
+            size += stringSize(url.getHostname());
+            if (url.getPort() != null) {
+                size += varintSize(url.getPort());
+            }
+        }
+        if ((mask & PATH_IS_RAW_PATH) == 0) {
+            size += stringSize(url.getPath());
+        }
+        return size;
+    }
+
+    /**
+     * Reads a URL from the buffer, leaving it positioned after the URL.
+     *
+     * @throws IllegalArgumentException if the buffer doesn't start with a valid encoded URL.
+     */
+    public static URL decode(ByteBuffer in) {
+        try {
+            if (in.get() != VERSION) {
+                throw new IllegalArgumentException("unknown encoded url version");
+            }
+            int mask = readVarint(in);
+            if ((mask & ~ALL) != 0) {
+                throw new IllegalArgumentException("invalid encoded url components");
+            }
+            String scheme = readString(in, mask, SCHEME);
+            String username = readString(in, mask, USERNAME);
+            String password = readString(in, mask, PASSWORD);
+            String host = readString(in, mask, HOST);
+            String hostname = readString(in, mask, HOSTNAME);
+            Integer port = (mask & PORT) != 0 ? readVarint(in) : null;
+            String path = readString(in, mask, PATH);
+            String rawPath = readString(in, mask, RAW_PATH);
+            if ((mask & PATH_IS_RAW_PATH) != 0) {
+                path = rawPath;
+            }
+            String query = readString(in, mask, QUERY);
+            String fragment = readString(in, mask, FRAGMENT);
+            String opaque = readString(in, mask, OPAQUE);
+            if ((mask & (HOSTNAME | PORT)) != 0) {
+                return new URL(scheme, username, password, hostname, port, path, rawPath, query, fragment, opaque);
+            }
+            return new URL(scheme, username, password, host, path, rawPath, query, fragment, opaque);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated encoded url", e);
+        }
+    }
+
+    /**
+     * Returns the URL encoded in the byte array.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid encoded URL.
+     */
+    public static URL fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        URL url = decode(in);
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("trailing bytes after encoded url");
+        }
+        return url;
+    }
+
+    /**
+     * Returns the components present in the URL. The host is written by itself when the hostname
+     * and port can be derived from it, as the parser does, and the hostname and port otherwise.
+     */
+    private static int mask(URL url) {
+        int mask = 0;
+        mask |= url.getScheme() != null ? SCHEME : 0;
+        mask |= url.getUsername() != null ? USERNAME : 0;
+        mask |= url.getPassword() != null ? PASSWORD : 0;
+        if (url.getHost() != null || url.getHostname() != null || url.getPort() != null) {
+            String host = hostOf(url);
+            if (Objects.equals(URL.extractHostname(host), url.getHostname())
+                    && Objects.equals(URL.extractPort(host), url.getPort())) {
+                mask |= HOST;
+            } else {
+                mask |= url.getHostname() != null ? HOSTNAME : 0;
+                mask |= url.getPort() != null ? PORT : 0;
+            }
+        }
+        String rawPath = url.getRawPath();
+        if (rawPath != null) {
+            mask |= RAW_PATH;
+            mask |= rawPath.equals(url.getPath()) ? PATH_IS_RAW_PATH : url.getPath() != null ? PATH : 0;
+        } else {
+            mask |= url.getPath() != null ? PATH : 0;
+        }
+        mask |= url.getQuery() != null ? QUERY : 0;
+        mask |= url.getFragment() != null ? FRAGMENT : 0;
+        mask |= url.getOpaque() != null ? OPAQUE : 0;
+        return mask;
+    }
+
+    /**
+     * Returns the host of the URL, or an empty host for URLs with an empty authority ('file:///a'),
+     * which have no host but an empty hostname.
+     */
+    private static String hostOf(URL url) {
+        return url.getHost() != null ? url.getHost() : "";
+    }
+
+    private static void writeString(ByteBuffer out, String str) {
+        if (str == null) {
+            return;
+        }
+        int len = str.length();
+        if (isASCII(str)) {
+            writeVarint(out, len << 1);
+            for (int i = 0; i < len; i++) {
+                out.put((byte) str.charAt(i));
+            }
+        } else {
+            writeVarint(out, len << 1 | 1);
+            for (int i = 0; i < len; i++) {
+                writeVarint(out, str.charAt(i));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in, int mask, int component) {
+        if ((mask & component) == 0) {
+            return null;
+        }
+        int header = readVarint(in);
+        int len = header >>> 1;
+        // Every character takes at least one byte.
+        if (len > in.remaining()) {
+            throw new IllegalArgumentException("truncated encoded url");
+        }
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            if ((header & 1) == 0) {
+                byte b = in.get();
+                if (b < 0) {
+                    throw new IllegalArgumentException("invalid ascii string in encoded url");
+                }
+                chars[i] = (char) b;
+            } else {
+                int c = readVarint(in);
+                if (c > Character.MAX_VALUE) {
+                    throw new IllegalArgumentException("invalid character in encoded url");
+                }
+                chars[i] = (char) c;
+            }
+        }
+        return new String(chars);
+    }
+
+    private static int stringSize(String str) {
+        if (str == null) {
+            return 0;
+        }
+        int len = str.length();
+        if (isASCII(str)) {
+            return varintSize(len << 1) + len;
+        }
+        int size = varintSize(len << 1 | 1);
+        for (int i = 0; i < len; i++) {
+            size += varintSize(str.charAt(i));
+        }
+        return size;
+    }
+
+    private static boolean isASCII(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("invalid varint in encoded url");
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * SerializedForm stands in for URLs in Java serialization, which writes it with the encoding of
+     * URLCodec instead of the fields and class descriptors of URL.
+     */
+    static final class SerializedForm implements Externalizable {
+        private static final long serialVersionUID = 80443L;
+        private static final int READ_CHUNK = 1 << 12;
+
+        private URL url;
+
+        /**
+         * Creates an empty form to be filled by readExternal.
+         */
+        public SerializedForm() {
+        }
+
+        SerializedForm(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            byte[] bytes = toBytes(url);
+            int len = bytes.length;
+            while ((len & ~0x7F) != 0) {
+                out.writeByte(len & 0x7F | 0x80);
+                len >>>= 7;
+            }
+            out.writeByte(len);
+            out.write(bytes);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            int len = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.readByte();
+                len |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+                if (shift >= 28) {
+                    throw new StreamCorruptedException("invalid encoded url length");
+                }
+            }
+            if (len < 0) {
+                throw new StreamCorruptedException("invalid encoded url length");
+            }
+            // Read in chunks so that a corrupt length can't allocate more than the stream holds.
+            byte[] bytes = new byte[Math.min(len, READ_CHUNK)];
+            for (int read = 0; read < len; ) {
+                if (read == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.min(len, bytes.length * 2));
+                }
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    throw new EOFException("truncated encoded url");
+                }
+                read += n;
+            }
+            try {
+                url = fromBytes(bytes);
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException(e.getMessage());
+            }
+        }
+
+        private Object readResolve() {
+            return url;
+        }
+    }
+}
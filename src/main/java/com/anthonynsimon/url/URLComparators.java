@@ -0,0 +1,613 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * URLComparators holds orderings of URLs that compare their parts directly, without building their
+ * string representations, and a radix sort for large arrays of URLs in any of these orders.
+ * <p>
+ * For example:
+ * <p>
+ * URLComparators.sort(urls, URLComparators.BY_HOST_AND_PATH);
+ * <p>
+ * Missing parts sort before present ones. The comparators don't accept null URLs.
+ */
+public final class URLComparators {
+
+    /**
+     * Orders URLs by host, including the port ('example.com:8080').
+     */
+    public static final Comparator<URL> BY_HOST = new HostComparator();
+
+    /**
+     * Orders URLs by the labels of their hostname from right to left ('com.example.www'), and then by
+     * port. Subdomains of a domain end up next to each other.
+     */
+    public static final Comparator<URL> BY_REVERSED_HOST = new ReversedHostComparator();
+
+    /**
+     * Orders URLs by host, including the port, and then by path.
+     */
+    public static final Comparator<URL> BY_HOST_AND_PATH = new HostAndPathComparator();
+
+    /**
+     * Orders URLs the same way as their string representations.
+     */
+    public static final Comparator<URL> LEXICOGRAPHIC = new LexicographicComparator();
+
+    /**
+     * Ranges smaller than this are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Ranges at least this large are sorted in their own task.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Key values, characters are shifted so that the end of a key and the separator between its
+     * parts sort before any of them.
+     */
+    private static final int END = 0;
+    private static final int SEPARATOR = 1;
+    private static final int CHAR_OFFSET = 2;
+
+    /**
+     * Buckets of the radix sort: end, separator, one per character below 256 and one for the rest.
+     */
+    private static final int BUCKETS = CHAR_OFFSET + 256 + 1;
+
+    /**
+     * Disallow instantiation of class.
+     */
+    private URLComparators() {
+    }
+
+    /**
+     * Sorts the URLs in the provided order. The orders of this class are sorted with a parallel
+     * MSD radix sort, any other comparator is handed to Arrays.parallelSort.
+     */
+    public static void sort(URL[] urls, Comparator<? super URL> order) {
+        if (!(order instanceof KeyComparator)) {
+            Arrays.parallelSort(urls, order);
+            return;
+        }
+        if (urls.length < 2) {
+            return;
+        }
+        KeyComparator keyOrder = (KeyComparator) order;
+        Cursor[] cursors = new Cursor[urls.length];
+        RadixSortTask task = new RadixSortTask(cursors, new Cursor[urls.length], new int[urls.length], 0, urls.length, 0);
+        if (urls.length < PARALLEL_THRESHOLD) {
+            Arrays.setAll(cursors, i -> keyOrder.cursor(urls[i]));
+            task.compute();
+        } else {
+            Arrays.parallelSetAll(cursors, i -> keyOrder.cursor(urls[i]));
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = cursors[i].url;
+        }
+    }
+
+    /**
+     * KeyComparator is an order defined by a key, a sequence of characters derived from the parts of
+     * the URL that is compared lexicographically. The key is never built, sorts read it through a cursor.
+     */
+    private abstract static class KeyComparator implements Comparator<URL> {
+
+        /**
+         * Returns a cursor over the key of the URL.
+         */
+        abstract Cursor cursor(URL url);
+    }
+
+    /**
+     * Cursor reads the key of a URL from its parts, with a separator between them that sorts before
+     * any character. Keys are mostly read from left to right, so cursors may keep their position to
+     * make the next read cheap.
+     */
+    private abstract static class Cursor {
+        final URL url;
+
+        Cursor(URL url) {
+            this.url = url;
+        }
+
+        /**
+         * Returns the character of the key at index shifted by CHAR_OFFSET, SEPARATOR between parts
+         * of the key, or END past its last character.
+         */
+        abstract int at(int index);
+
+        /**
+         * Compares the keys from index on, the characters before it being equal.
+         */
+        int compareTo(Cursor other, int index) {
+            for (int i = index; ; i++) {
+                int ka = at(i);
+                int kb = other.at(i);
+                if (ka != kb) {
+                    return ka < kb ? -1 : 1;
+                }
+                if (ka == END) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private static final class HostComparator extends KeyComparator {
+        @Override
+        Cursor cursor(URL url) {
+            return new HostCursor(url);
+        }
+
+        @Override
+        public int compare(URL a, URL b) {
+            return compareNullable(a.getHost(), b.getHost());
+        }
+
+        private static final class HostCursor extends Cursor {
+            private final String host;
+
+            HostCursor(URL url) {
+                super(url);
+                this.host = url.getHost();
+            }
+
+            @Override
+            int at(int index) {
+                return charKey(host, index);
+            }
+        }
+    }
+
+    /**
+     * ReversedHostComparator reads the labels of the hostname from right to left in place. In keys,
+     * the port follows the hostname as 4 characters below 256, with the sign flipped, so that it
+     * sorts by value.
+     */
+    private static final class ReversedHostComparator extends KeyComparator {
+        @Override
+        Cursor cursor(URL url) {
+            return new ReversedHostCursor(url);
+        }
+
+        @Override
+        public int compare(URL a, URL b) {
+            String hostA = hostname(a);
+            String hostB = hostname(b);
+            int endA = hostA.length();
+            int endB = hostB.length();
+            int startA = hostA.lastIndexOf('.', endA - 1) + 1;
+            int startB = hostB.lastIndexOf('.', endB - 1) + 1;
+            int ia = startA;
+            int ib = startB;
+            while (true) {
+                int ka;
+                if (ia < endA) {
+                    ka = hostA.charAt(ia++) + CHAR_OFFSET;
+                } else if (startA > 0) {
+                    ka = '.' + CHAR_OFFSET;
+                    endA = startA - 1;
+                    startA = hostA.lastIndexOf('.', endA - 1) + 1;
+                    ia = startA;
+                } else {
+                    ka = END;
+                }
+                int kb;
+                if (ib < endB) {
+                    kb = hostB.charAt(ib++) + CHAR_OFFSET;
+                } else if (startB > 0) {
+                    kb = '.' + CHAR_OFFSET;
+                    endB = startB - 1;
+                    startB = hostB.lastIndexOf('.', endB - 1) + 1;
+                    ib = startB;
+                } else {
+                    kb = END;
+                }
+                if (ka != kb) {
+                    return ka < kb ? -1 : 1;
+                }
+                if (ka == END) {
+                    break;
+                }
+            }
+            Integer portA = a.getPort();
+            Integer portB = b.getPort();
+            if (portA == null || portB == null) {
+                return portA == portB ? 0 : portA == null ? -1 : 1;
+            }
+            return Integer.compare(portA, portB);
+        }
+
+        private static String hostname(URL url) {
+            String hostname = url.getHostname();
+            return hostname != null ? hostname : "";
+        }
+
+        private static final class ReversedHostCursor extends Cursor {
+            private final String hostname;
+            private final boolean hasPort;
+            private final int port;
+
+            /**
+             * The label hostname[labelStart, labelEnd) is the one read last, it starts at offset in the key.
+             */
+            private int labelStart;
+            private int labelEnd;
+            private int offset;
+
+            ReversedHostCursor(URL url) {
+                super(url);
+                this.hostname = hostname(url);
+                Integer port = url.getPort();
+                this.hasPort = port != null;
+                this.port = hasPort ? port ^ Integer.MIN_VALUE : 0;
+                this.labelEnd = hostname.length();
+                this.labelStart = hostname.lastIndexOf('.', labelEnd - 1) + 1;
+            }
+
+            @Override
+            int at(int index) {
+                int i = labelStart + index - offset;
+                if (index >= offset && i < labelEnd) {
+                    return hostname.charAt(i) + CHAR_OFFSET;
+                }
+                return seek(index);
+            }
+
+            /**
+             * Moves to the label at index of the key and returns the character there, or the
+             * separator and port past the hostname.
+             */
+            private int seek(int index) {
+                int len = hostname.length();
+                if (index >= len) {
+                    if (!hasPort) {
+                        return END;
+                    }
+                    if (index == len) {
+                        return SEPARATOR;
+                    }
+                    int shift = 24 - 8 * (index - len - 1);
+                    return shift >= 0 ? (port >>> shift & 0xFF) + CHAR_OFFSET : END;
+                }
+                // Labels to the left in the key are to the right in the hostname.
+                while (index < offset) {
+                    labelStart = labelEnd + 1;
+                    labelEnd = hostname.indexOf('.', labelStart);
+                    if (labelEnd < 0) {
+                        labelEnd = len;
+                    }
+                    offset -= labelEnd - labelStart + 1;
+                }
+                // The last label reaches the end of the hostname, so this stops before running out of labels.
+                while (index >= offset + labelEnd - labelStart) {
+                    if (index == offset + labelEnd - labelStart) {
+                        return '.' + CHAR_OFFSET;
+                    }
+                    offset += labelEnd - labelStart + 1;
+                    labelEnd = labelStart - 1;
+                    labelStart = hostname.lastIndexOf('.', labelEnd - 1) + 1;
+                }
+                return hostname.charAt(labelStart + index - offset) + CHAR_OFFSET;
+            }
+        }
+    }
+
+    private static final class HostAndPathComparator extends KeyComparator {
+        @Override
+        Cursor cursor(URL url) {
+            return new HostAndPathCursor(url);
+        }
+
+        @Override
+        public int compare(URL a, URL b) {
+            int result = compareNullable(a.getHost(), b.getHost());
+            if (result != 0) {
+                return result;
+            }
+            for (int i = 0; ; i++) {
+                int ka = pathKey(a, i);
+                int kb = pathKey(b, i);
+                if (ka != kb) {
+                    return ka < kb ? -1 : 1;
+                }
+                if (ka == END) {
+                    return 0;
+                }
+            }
+        }
+
+        private static int pathKey(URL url, int index) {
+            if (url.pathNeedsSlash()) {
+                if (index == 0) {
+                    return '/' + CHAR_OFFSET;
+                }
+                index--;
+            }
+            return charKey(url.serializedPath(), index);
+        }
+
+        /**
+         * HostAndPathCursor reads the host, a separator and then the path.
+         */
+        private static final class HostAndPathCursor extends Cursor {
+            private final String host;
+            private final String path;
+            private final boolean pathNeedsSlash;
+
+            HostAndPathCursor(URL url) {
+                super(url);
+                this.host = url.getHost() != null ? url.getHost() : "";
+                this.path = url.serializedPath();
+                this.pathNeedsSlash = url.pathNeedsSlash();
+            }
+
+            @Override
+            int at(int index) {
+                int hostLength = host.length();
+                if (index < hostLength) {
+                    return host.charAt(index) + CHAR_OFFSET;
+                }
+                if (index == hostLength) {
+                    return SEPARATOR;
+                }
+                index -= hostLength + 1;
+                if (pathNeedsSlash) {
+                    if (index == 0) {
+                        return '/' + CHAR_OFFSET;
+                    }
+                    index--;
+                }
+                return charKey(path, index);
+            }
+        }
+    }
+
+    /**
+     * LexicographicComparator reads the URL as the pieces that toString writes, one after another,
+     * without building the string representation.
+     */
+    private static final class LexicographicComparator extends KeyComparator {
+        private static final int PIECES = 14;
+
+        @Override
+        Cursor cursor(URL url) {
+            return new LexicographicCursor(url);
+        }
+
+        @Override
+        public int compare(URL a, URL b) {
+            int pieceA = 0;
+            int pieceB = 0;
+            String strA = "";
+            String strB = "";
+            int ia = 0;
+            int ib = 0;
+            while (true) {
+                while (ia == strA.length() && pieceA < PIECES) {
+                    String piece = piece(a, pieceA++);
+                    strA = piece != null ? piece : "";
+                    ia = 0;
+                }
+                while (ib == strB.length() && pieceB < PIECES) {
+                    String piece = piece(b, pieceB++);
+                    strB = piece != null ? piece : "";
+                    ib = 0;
+                }
+                boolean endA = ia == strA.length();
+                boolean endB = ib == strB.length();
+                if (endA || endB) {
+                    return endA == endB ? 0 : endA ? -1 : 1;
+                }
+                char ca = strA.charAt(ia++);
+                char cb = strB.charAt(ib++);
+                if (ca != cb) {
+                    return ca < cb ? -1 : 1;
+                }
+            }
+        }
+
+        /**
+         * Returns the piece of the string representation at index, or null if it is not written.
+         */
+        private static String piece(URL url, int index) {
+            String scheme = url.getScheme();
+            boolean opaque = url.isOpaque();
+            boolean hasAuthority = !opaque && (scheme != null || url.getHost() != null);
+            String username = url.getUsername();
+            switch (index) {
+                case 0:
+                    return scheme;
+                case 1:
+                    return scheme != null ? ":" : null;
+                case 2:
+                    return opaque ? url.getOpaque() : hasAuthority && scheme != null ? "//" : null;
+                case 3:
+                    return hasAuthority && username != null ? PercentEncoder.encode(username, URLPart.CREDENTIALS) : null;
+                case 4:
+                    return hasAuthority && username != null && url.getPassword() != null ? ":" : null;
+                case 5:
+                    return hasAuthority && username != null && url.getPassword() != null
+                            ? PercentEncoder.encode(url.getPassword(), URLPart.CREDENTIALS) : null;
+                case 6:
+                    return hasAuthority && username != null ? "@" : null;
+                case 7:
+                    return hasAuthority && url.getHost() != null ? PercentEncoder.encode(url.getHost(), URLPart.HOST) : null;
+                case 8:
+                    return !opaque && url.pathNeedsSlash() ? "/" : null;
+                case 9:
+                    return !opaque ? url.serializedPath() : null;
+                case 10:
+                    return url.getQuery() != null ? "?" : null;
+                case 11:
+                    return url.getQuery() != null && !"?".equals(url.getQuery()) ? url.getQuery() : null;
+                case 12:
+                    return url.getFragment() != null ? "#" : null;
+                case 13:
+                    return url.getFragment();
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * LexicographicCursor keeps the piece it read last, the next one is only written once it is reached.
+         */
+        private static final class LexicographicCursor extends Cursor {
+            private int piece;
+            private String str = "";
+
+            /**
+             * Index of the key at which str starts.
+             */
+            private int offset;
+
+            LexicographicCursor(URL url) {
+                super(url);
+            }
+
+            @Override
+            int at(int index) {
+                if (index < offset) {
+                    piece = 0;
+                    str = "";
+                    offset = 0;
+                }
+                while (index >= offset + str.length()) {
+                    if (piece == PIECES) {
+                        return END;
+                    }
+                    offset += str.length();
+                    String next = piece(url, piece++);
+                    str = next != null ? next : "";
+                }
+                return str.charAt(index - offset) + CHAR_OFFSET;
+            }
+        }
+    }
+
+    private static int charKey(String str, int index) {
+        return str != null && index < str.length() ? str.charAt(index) + CHAR_OFFSET : END;
+    }
+
+    private static int compareNullable(String a, String b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * RadixSortTask sorts keys[lo, hi), which share their first depth characters. Ranges are split
+     * in buckets by the character at depth, large buckets are sorted in their own task and the rest
+     * are kept in an explicit stack, so long common prefixes don't overflow the call stack.
+     */
+    private static final class RadixSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Cursor[] keys;
+        private final Cursor[] aux;
+        private final int[] buckets;
+        private final int lo;
+        private final int hi;
+        private final int depth;
+
+        RadixSortTask(Cursor[] keys, Cursor[] aux, int[] buckets, int lo, int hi, int depth) {
+            this.keys = keys;
+            this.aux = aux;
+            this.buckets = buckets;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            List<RadixSortTask> forked = new ArrayList<>();
+            Deque<int[]> ranges = new ArrayDeque<>();
+            ranges.push(new int[]{lo, hi, depth});
+            int[] counts = new int[BUCKETS + 1];
+
+            while (!ranges.isEmpty()) {
+                int[] range = ranges.pop();
+                int from = range[0];
+                int to = range[1];
+                int d = range[2];
+                if (to - from < INSERTION_SORT_THRESHOLD) {
+                    insertionSort(from, to, d);
+                    continue;
+                }
+
+                Arrays.fill(counts, 0);
+                for (int i = from; i < to; i++) {
+                    int key = keys[i].at(d);
+                    int bucket = key < CHAR_OFFSET + 256 ? key : BUCKETS - 1;
+                    buckets[i] = bucket;
+                    counts[bucket + 1]++;
+                }
+                int first = buckets[from];
+                if (counts[first + 1] == to - from && first != BUCKETS - 1) {
+                    // The keys share the character at depth, there is nothing to move.
+                    if (first != END) {
+                        ranges.push(new int[]{from, to, d + 1});
+                    }
+                    continue;
+                }
+                for (int b = 0; b < BUCKETS; b++) {
+                    counts[b + 1] += counts[b];
+                }
+                for (int i = from; i < to; i++) {
+                    aux[from + counts[buckets[i]]++] = keys[i];
+                }
+                System.arraycopy(aux, from, keys, from, to - from);
+
+                // counts[b] is now the end of bucket b. Keys in bucket END are all equal.
+                for (int b = END + 1; b < BUCKETS; b++) {
+                    int start = from + counts[b - 1];
+                    int end = from + counts[b];
+                    if (end - start < 2) {
+                        continue;
+                    }
+                    if (b == BUCKETS - 1) {
+                        // Characters above 255 share a bucket, it's sorted by comparison.
+                        Arrays.sort(keys, start, end, (x, y) -> x.compareTo(y, d));
+                    } else if (end - start >= PARALLEL_THRESHOLD) {
+                        RadixSortTask task = new RadixSortTask(keys, aux, buckets, start, end, d + 1);
+                        task.fork();
+                        forked.add(task);
+                    } else {
+                        ranges.push(new int[]{start, end, d + 1});
+                    }
+                }
+            }
+
+            for (RadixSortTask task : forked) {
+                task.join();
+            }
+        }
+
+        private void insertionSort(int from, int to, int d) {
+            for (int i = from + 1; i < to; i++) {
+                Cursor key = keys[i];
+                int j = i - 1;
+                while (j >= from && keys[j].compareTo(key, d) > 0) {
+                    keys[j + 1] = keys[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+            }
+        }
+    }
+}
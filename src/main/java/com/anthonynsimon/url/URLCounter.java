@@ -0,0 +1,321 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * URLCounter counts occurrences of URLs, or of their hosts or path prefixes, keyed by a 64-bit
+ * fingerprint instead of a String. Counts are kept in primitive open-addressed tables, so counting
+ * does not box keys or values.
+ * <p>
+ * For example:
+ * <p>
+ * URLCounter hosts = URLCounter.byHost();
+ * hosts.increment(URL.parse("http://example.com/a"));
+ * hosts.count(URL.parse("http://example.com/b")) == 1
+ * <p>
+ * The counter is split in striped tables and is safe to use from multiple threads. For heavy
+ * aggregation, each thread can count into its own partial counter (see newPartial()) and merge it
+ * into the shared one once done.
+ */
+public final class URLCounter {
+    private static final int DEFAULT_STRIPES = 16;
+
+    private static final int MODE_URL = 0;
+    private static final int MODE_HOST = 1;
+    private static final int MODE_PATH_PREFIX = 2;
+
+    private final int mode;
+    private final int prefixSegments;
+    private final int stripeShift;
+    private final LongCountMap[] stripes;
+
+    private URLCounter(int mode, int prefixSegments, int stripeCount) {
+        this.mode = mode;
+        this.prefixSegments = prefixSegments;
+        this.stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        this.stripes = new LongCountMap[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LongCountMap();
+        }
+    }
+
+    /**
+     * Returns a counter keyed by the fingerprint of the whole URL.
+     */
+    public static URLCounter byURL() {
+        return new URLCounter(MODE_URL, 0, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Returns a counter keyed by the host ('example.com:8080') of the URL.
+     */
+    public static URLCounter byHost() {
+        return new URLCounter(MODE_HOST, 0, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Returns a counter keyed by the host and the first path segments of the URL.
+     * <p>
+     * For example, with two segments 'http://example.com/a/b/c' is counted as 'example.com/a/b'.
+     */
+    public static URLCounter byPathPrefix(int segments) {
+        if (segments < 0) {
+            throw new IllegalArgumentException("segments must not be negative");
+        }
+        return new URLCounter(MODE_PATH_PREFIX, segments, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Returns a new empty counter with the same keys as this one, but without striping. It's meant
+     * to be used by a single thread and then merged with mergeFrom().
+     */
+    public URLCounter newPartial() {
+        return new URLCounter(mode, prefixSegments, 1);
+    }
+
+    /**
+     * Returns the key the URL is counted under.
+     */
+    public long key(URL url) {
+        switch (mode) {
+            case MODE_HOST:
+                return new Murmur3Hasher().putComponent(url.getHost()).finishHigh();
+            case MODE_PATH_PREFIX:
+                return pathPrefixKey(url);
+            default:
+                return url.fingerprint64();
+        }
+    }
+
+    /**
+     * Adds one to the count of the URL and returns the new count.
+     */
+    public long increment(URL url) {
+        return add(key(url), 1);
+    }
+
+    /**
+     * Adds delta to the count of the URL and returns the new count.
+     */
+    public long add(URL url, long delta) {
+        return add(key(url), delta);
+    }
+
+    /**
+     * Adds delta to the count of the key and returns the new count.
+     */
+    public long add(long key, long delta) {
+        LongCountMap stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.add(key, delta);
+        }
+    }
+
+    /**
+     * Returns the count of the URL.
+     */
+    public long count(URL url) {
+        return count(key(url));
+    }
+
+    /**
+     * Returns the count of the key.
+     */
+    public long count(long key) {
+        LongCountMap stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Returns the number of distinct keys.
+     */
+    public long size() {
+        long size = 0;
+        for (LongCountMap stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Adds all the counts of the other counter to this one.
+     *
+     * @throws IllegalArgumentException if the counters don't use the same keys.
+     */
+    public void mergeFrom(URLCounter other) {
+        if (other.mode != mode || other.prefixSegments != prefixSegments) {
+            throw new IllegalArgumentException("can't merge counters with different keys");
+        }
+        for (LongCountMap stripe : other.stripes) {
+            // Copy the stripe first, so that no two locks are ever held at the same time.
+            long[] keys;
+            long[] counts;
+            int size = 0;
+            synchronized (stripe) {
+                keys = new long[stripe.size()];
+                counts = new long[stripe.size()];
+                for (int i = 0; i < stripe.slots(); i++) {
+                    if (stripe.isUsed(i)) {
+                        keys[size] = stripe.keyAt(i);
+                        counts[size] = stripe.countAt(i);
+                        size++;
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                add(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the k entries with the highest counts, sorted from highest to lowest.
+     */
+    public List<Entry> topK(int k) {
+        k = (int) Math.min(k, size());
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Min-heap of the best entries found so far, the lowest count sits at the root.
+        long[] keys = new long[k];
+        long[] counts = new long[k];
+        int size = 0;
+        for (LongCountMap stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.slots(); i++) {
+                    if (!stripe.isUsed(i)) {
+                        continue;
+                    }
+                    long key = stripe.keyAt(i);
+                    long count = stripe.countAt(i);
+                    if (size < k) {
+                        keys[size] = key;
+                        counts[size] = count;
+                        siftUp(keys, counts, size++);
+                    } else if (isLower(counts[0], keys[0], count, key)) {
+                        keys[0] = key;
+                        counts[0] = count;
+                        siftDown(keys, counts, 0, size);
+                    }
+                }
+            }
+        }
+
+        Entry[] result = new Entry[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = new Entry(keys[0], counts[0]);
+            keys[0] = keys[i];
+            counts[0] = counts[i];
+            siftDown(keys, counts, 0, i);
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    private LongCountMap stripe(long key) {
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+        return stripes[(int) (Murmur3Hasher.fmix64(key) >>> stripeShift)];
+    }
+
+    private long pathPrefixKey(URL url) {
+        Murmur3Hasher hasher = new Murmur3Hasher().putComponent(url.getHost());
+        String path = url.getRawPath() != null ? url.getRawPath() : url.getPath();
+        if (path != null) {
+            // Leading and trailing slashes are ignored, so that '/a', 'a' and '/a/' share the same prefix.
+            int start = path.charAt(0) == '/' ? 1 : 0;
+            int end = start;
+            int segments = 0;
+            while (segments < prefixSegments && end < path.length()) {
+                int next = path.indexOf('/', end);
+                end = next < 0 ? path.length() : next + 1;
+                segments++;
+            }
+            if (end > start && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            hasher.putString(path, start, end);
+        }
+        return hasher.finishHigh();
+    }
+
+    /**
+     * Returns true if the entry (countA, keyA) ranks below (countB, keyB). Ties are broken by key
+     * so that the result is deterministic.
+     */
+    private static boolean isLower(long countA, long keyA, long countB, long keyB) {
+        return countA < countB || countA == countB && keyA > keyB;
+    }
+
+    private static void siftUp(long[] keys, long[] counts, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isLower(counts[i], keys[i], counts[parent], keys[parent])) {
+                break;
+            }
+            swap(keys, counts, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, long[] counts, int i, int size) {
+        while (true) {
+            int lowest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && isLower(counts[left], keys[left], counts[lowest], keys[lowest])) {
+                lowest = left;
+            }
+            if (right < size && isLower(counts[right], keys[right], counts[lowest], keys[lowest])) {
+                lowest = right;
+            }
+            if (lowest == i) {
+                return;
+            }
+            swap(keys, counts, i, lowest);
+            i = lowest;
+        }
+    }
+
+    private static void swap(long[] keys, long[] counts, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+
+    /**
+     * Entry is a key and its count, as returned by topK.
+     */
+    public static final class Entry {
+        private final long key;
+        private final long count;
+
+        Entry(long key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + count;
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * URLFilter decides whether requests should be blocked using filter rules in the Adblock Plus
+ * format, as found in EasyList.
+ * <p>
+ * Supported rules are:
+ * <p>
+ * 'ads/banner' matches URLs containing the text, '*' matches any text and '^' matches a separator
+ * (any character but a letter, a digit or one of '_-.%', or the end of the URL).
+ * '|http://example.com' and '.gif|' anchor the rule at the start or the end of the URL.
+ * '||example.com^' matches URLs whose host is example.com or one of its subdomains.
+ * '@@' starts an exception rule, requests matched by an exception are never blocked.
+ * '$' starts the options of the rule: third-party, first-party, match-case, domain=a.com|~b.com and
+ * resource types (script, image, stylesheet, object, xmlhttprequest, subdocument, document, font,
+ * media, websocket, ping, other), each one of them negated with '~'.
+ * <p>
+ * Comments, element hiding rules, regular expression rules and rules with unknown options are
+ * ignored. Rules match ignoring the case of ASCII letters unless they have the match-case option.
+ * <p>
+ * Each rule is indexed by its longest literal text. An AhoCorasick automaton finds the texts present
+ * in the URL in a single pass and only the rules indexed by them are evaluated. Rules without such
+ * text are evaluated for every URL.
+ * <p>
+ * A URLFilter is immutable and can be shared between threads.
+ */
+public final class URLFilter {
+
+    /**
+     * ResourceType is the kind of resource that is requested.
+     */
+    public enum ResourceType {
+        DOCUMENT,
+        SUBDOCUMENT,
+        SCRIPT,
+        IMAGE,
+        STYLESHEET,
+        OBJECT,
+        XMLHTTPREQUEST,
+        FONT,
+        MEDIA,
+        WEBSOCKET,
+        PING,
+        OTHER
+    }
+
+    /**
+     * Rules apply to every resource type but documents unless their options say otherwise.
+     */
+    private static final int ALL_TYPES = (1 << ResourceType.values().length) - 1;
+    private static final int DEFAULT_TYPES = ALL_TYPES & ~(1 << ResourceType.DOCUMENT.ordinal());
+
+    private static final int ANY_PARTY = 0;
+    private static final int THIRD_PARTY = 1;
+    private static final int FIRST_PARTY = 2;
+
+    private static final Map<String, ResourceType> TYPE_OPTIONS = new HashMap<>();
+
+    static {
+        for (ResourceType type : ResourceType.values()) {
+            TYPE_OPTIONS.put(type.name().toLowerCase(Locale.ROOT), type);
+        }
+    }
+
+    private final RuleIndex blocking;
+    private final RuleIndex exceptions;
+    private final ThreadLocal<int[]> visitedKeys;
+
+    private URLFilter(List<Rule> blockingRules, List<Rule> exceptionRules) {
+        this.blocking = new RuleIndex(blockingRules);
+        this.exceptions = new RuleIndex(exceptionRules);
+        int keys = Math.max(blocking.keyCount(), exceptions.keyCount());
+        this.visitedKeys = ThreadLocal.withInitial(() -> new int[keys + 1]);
+    }
+
+    /**
+     * Returns true if the request for the URL, made by the document at documentURL, should be blocked.
+     * The document URL is used for the third-party and domain options, and may be null for requests
+     * that have no document, which are then first-party.
+     */
+    public boolean shouldBlock(URL url, URL documentURL, ResourceType type) {
+        return match(url, documentURL, type) != null;
+    }
+
+    /**
+     * Returns the rule that blocks the request, or null if no rule blocks it or an exception rule
+     * allows it.
+     */
+    public String match(URL url, URL documentURL, ResourceType type) {
+        Request request = new Request(url, documentURL, type != null ? type : ResourceType.OTHER);
+        Rule rule = blocking.find(request, visitedKeys.get());
+        if (rule == null || exceptions.find(request, visitedKeys.get()) != null) {
+            return null;
+        }
+        return rule.text;
+    }
+
+    /**
+     * Returns the number of blocking and exception rules of the filter.
+     */
+    public int size() {
+        return blocking.size() + exceptions.size();
+    }
+
+    /**
+     * Request holds a URL being filtered, its string form and where its hostname is in it.
+     */
+    private static final class Request {
+        private final URL url;
+        private final URL documentURL;
+        private final int typeBit;
+        private final String str;
+        private final int hostStart;
+        private final int hostEnd;
+        private int thirdParty = -1;
+
+        Request(URL url, URL documentURL, ResourceType type) {
+            this.url = url;
+            this.documentURL = documentURL;
+            this.typeBit = 1 << type.ordinal();
+            this.str = url.toString();
+
+            String hostname = url.getHostname();
+            int start = -1;
+            if (hostname != null) {
+                int authority = str.indexOf("//");
+                start = authority >= 0 ? authority + 2 : 0;
+                if (url.getUsername() != null) {
+                    start = str.indexOf('@', start) + 1;
+                }
+            }
+            this.hostStart = start;
+            this.hostEnd = start >= 0 ? Math.min(start + hostname.length(), str.length()) : -1;
+        }
+
+        boolean isThirdParty() {
+            if (thirdParty < 0) {
+                thirdParty = documentURL != null && !siteOf(url).equalsIgnoreCase(siteOf(documentURL)) ? 1 : 0;
+            }
+            return thirdParty == 1;
+        }
+
+        /**
+         * Returns the hostname of the document, or of the request if there is no document.
+         */
+        String contextHostname() {
+            String hostname = documentURL != null ? documentURL.getHostname() : url.getHostname();
+            return hostname != null ? hostname : "";
+        }
+
+        private static String siteOf(URL url) {
+            String domain = url.getRegistrableDomain();
+            if (domain != null) {
+                return domain;
+            }
+            return url.getHostname() != null ? url.getHostname() : "";
+        }
+    }
+
+    /**
+     * RuleIndex holds a set of rules bucketed by their key, with an automaton to find the keys
+     * present in a URL.
+     */
+    private static final class RuleIndex {
+        private final AhoCorasick automaton;
+        private final Rule[][] buckets;
+        private final Rule[] unkeyed;
+        private final int size;
+
+        RuleIndex(List<Rule> rules) {
+            Map<String, List<Rule>> byKey = new HashMap<>();
+            List<String> keys = new ArrayList<>();
+            List<Rule> unkeyedRules = new ArrayList<>();
+            for (Rule rule : rules) {
+                if (rule.key == null) {
+                    unkeyedRules.add(rule);
+                    continue;
+                }
+                List<Rule> bucket = byKey.get(rule.key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    byKey.put(rule.key, bucket);
+                    keys.add(rule.key);
+                }
+                bucket.add(rule);
+            }
+            this.automaton = AhoCorasick.compile(keys);
+            this.buckets = new Rule[keys.size()][];
+            for (int i = 0; i < keys.size(); i++) {
+                buckets[i] = byKey.get(keys.get(i)).toArray(new Rule[0]);
+            }
+            this.unkeyed = unkeyedRules.toArray(new Rule[0]);
+            this.size = rules.size();
+        }
+
+        int keyCount() {
+            return buckets.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns a rule matching the request, or null. visited is scratch space with a slot per key
+         * and a generation counter in its last slot, so that each bucket is only evaluated once.
+         */
+        Rule find(Request request, int[] visited) {
+            for (Rule rule : unkeyed) {
+                if (rule.matches(request)) {
+                    return rule;
+                }
+            }
+            if (buckets.length == 0) {
+                return null;
+            }
+
+            int generation = ++visited[visited.length - 1];
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                generation = visited[visited.length - 1] = 1;
+            }
+            String str = request.str;
+            int state = AhoCorasick.ROOT;
+            for (int i = 0; i < str.length(); i++) {
+                state = automaton.next(state, toLowerCase(str.charAt(i)));
+                int output = automaton.keyAt(state) >= 0 ? state : automaton.outputLink(state);
+                while (output >= 0) {
+                    int key = automaton.keyAt(output);
+                    if (visited[key] != generation) {
+                        visited[key] = generation;
+                        for (Rule rule : buckets[key]) {
+                            if (rule.matches(request)) {
+                                return rule;
+                            }
+                        }
+                    }
+                    output = automaton.outputLink(output);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Rule is a compiled filter rule. Its pattern is split at '*' into segments that are matched in order.
+     */
+    private static final class Rule {
+        private final String text;
+        private final String[] segments;
+        private final boolean anchorStart;
+        private final boolean anchorHost;
+        private final boolean anchorEnd;
+        private final boolean matchCase;
+        private final int types;
+        private final int party;
+        private final String[] includeDomains;
+        private final String[] excludeDomains;
+
+        /**
+         * Longest literal text of the pattern in lowercase, or null if it has none worth indexing.
+         */
+        private final String key;
+
+        Rule(String text, String pattern, boolean anchorStart, boolean anchorHost, boolean anchorEnd,
+             boolean matchCase, int types, int party, String[] includeDomains, String[] excludeDomains) {
+            this.text = text;
+            this.anchorStart = anchorStart;
+            this.anchorHost = anchorHost;
+            this.anchorEnd = anchorEnd;
+            this.matchCase = matchCase;
+            this.types = types;
+            this.party = party;
+            this.includeDomains = includeDomains;
+            this.excludeDomains = excludeDomains;
+
+            List<String> parts = new ArrayList<>();
+            for (String part : pattern.split("\\*", -1)) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            this.segments = parts.toArray(new String[0]);
+            this.key = longestLiteral(pattern);
+        }
+
+        private static String longestLiteral(String pattern) {
+            int bestStart = 0;
+            int bestLength = 0;
+            int start = 0;
+            for (int i = 0; i <= pattern.length(); i++) {
+                if (i == pattern.length() || pattern.charAt(i) == '*' || pattern.charAt(i) == '^') {
+                    if (i - start > bestLength) {
+                        bestStart = start;
+                        bestLength = i - start;
+                    }
+                    start = i + 1;
+                }
+            }
+            if (bestLength < 2) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder(bestLength);
+            for (int i = bestStart; i < bestStart + bestLength; i++) {
+                sb.append(toLowerCase(pattern.charAt(i)));
+            }
+            return sb.toString();
+        }
+
+        boolean matches(Request request) {
+            if ((types & request.typeBit) == 0) {
+                return false;
+            }
+            if (party != ANY_PARTY && request.isThirdParty() != (party == THIRD_PARTY)) {
+                return false;
+            }
+            if ((includeDomains != null || excludeDomains != null) && !matchesDomain(request.contextHostname())) {
+                return false;
+            }
+            return matchesPattern(request);
+        }
+
+        private boolean matchesDomain(String hostname) {
+            if (excludeDomains != null) {
+                for (String domain : excludeDomains) {
+                    if (isSameOrSubdomain(hostname, domain)) {
+                        return false;
+                    }
+                }
+            }
+            if (includeDomains == null) {
+                return true;
+            }
+            for (String domain : includeDomains) {
+                if (isSameOrSubdomain(hostname, domain)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isSameOrSubdomain(String hostname, String domain) {
+            int offset = hostname.length() - domain.length();
+            if (offset < 0 || !hostname.regionMatches(true, offset, domain, 0, domain.length())) {
+                return false;
+            }
+            return offset == 0 || hostname.charAt(offset - 1) == '.';
+        }
+
+        private boolean matchesPattern(Request request) {
+            String str = request.str;
+            if (anchorHost) {
+                if (request.hostStart < 0) {
+                    return false;
+                }
+                for (int i = request.hostStart; i < request.hostEnd; i++) {
+                    if ((i == request.hostStart || str.charAt(i - 1) == '.') && matchesFrom(str, i, true)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return matchesFrom(str, 0, anchorStart);
+        }
+
+        /**
+         * Returns true if the segments match str in order from the position, the first one exactly at
+         * the position if anchored.
+         */
+        private boolean matchesFrom(String str, int position, boolean anchored) {
+            int pos = position;
+            for (int s = 0; s < segments.length; s++) {
+                String segment = segments[s];
+                boolean fixed = s == 0 && anchored;
+                if (s == segments.length - 1 && anchorEnd) {
+                    // The last segment must end with the string. It consumes at most its length.
+                    int from = fixed ? pos : Math.max(pos, str.length() - segment.length());
+                    int to = fixed ? pos : str.length();
+                    for (int p = from; p <= to; p++) {
+                        if (matchSegment(str, p, segment) == str.length()) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                int end = matchSegment(str, pos, segment);
+                for (int p = pos + 1; !fixed && end < 0 && p <= str.length(); p++) {
+                    end = matchSegment(str, p, segment);
+                }
+                if (end < 0) {
+                    return false;
+                }
+                pos = end;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the position after the segment matched at pos, or -1 if it doesn't match there.
+         * A '^' matches a separator character or the end of the string.
+         */
+        private int matchSegment(String str, int pos, String segment) {
+            int len = str.length();
+            for (int i = 0; i < segment.length(); i++) {
+                char expected = segment.charAt(i);
+                if (expected == '^') {
+                    if (pos < len) {
+                        if (!isSeparator(str.charAt(pos))) {
+                            return -1;
+                        }
+                        pos++;
+                    }
+                    continue;
+                }
+                if (pos >= len) {
+                    return -1;
+                }
+                char actual = str.charAt(pos++);
+                if (actual != expected && (matchCase || toLowerCase(actual) != toLowerCase(expected))) {
+                    return -1;
+                }
+            }
+            return pos;
+        }
+
+        private static boolean isSeparator(char c) {
+            return !('a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9'
+                    || c == '_' || c == '-' || c == '.' || c == '%');
+        }
+    }
+
+    private static char toLowerCase(char c) {
+        return 'A' <= c && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Builder compiles filter rules into a URLFilter.
+     */
+    public static final class Builder {
+        private final List<Rule> blockingRules = new ArrayList<>();
+        private final List<Rule> exceptionRules = new ArrayList<>();
+        private int ignored;
+
+        /**
+         * Adds a line of a filter list. Comments, empty lines and unsupported rules are ignored.
+         */
+        public Builder add(String line) {
+            Rule rule = parse(line.trim());
+            if (rule == null) {
+                ignored++;
+            } else if (line.trim().startsWith("@@")) {
+                exceptionRules.add(rule);
+            } else {
+                blockingRules.add(rule);
+            }
+            return this;
+        }
+
+        /**
+         * Adds every line of a filter list.
+         */
+        public Builder addAll(Iterable<String> lines) {
+            for (String line : lines) {
+                add(line);
+            }
+            return this;
+        }
+
+        /**
+         * Returns the number of lines that were ignored.
+         */
+        public int ignoredCount() {
+            return ignored;
+        }
+
+        /**
+         * Returns a filter with the rules added so far. The builder can keep being used afterwards.
+         */
+        public URLFilter build() {
+            return new URLFilter(blockingRules, exceptionRules);
+        }
+
+        private static Rule parse(String line) {
+            if (line.isEmpty() || line.startsWith("!") || line.startsWith("[")
+                    || line.contains("##") || line.contains("#@#") || line.contains("#?#")) {
+                return null;
+            }
+            String pattern = line.startsWith("@@") ? line.substring(2) : line;
+
+            boolean matchCase = false;
+            int types = DEFAULT_TYPES;
+            int party = ANY_PARTY;
+            List<String> include = null;
+            List<String> exclude = null;
+            int dollar = pattern.lastIndexOf('$');
+            if (dollar >= 0) {
+                int includedTypes = 0;
+                int excludedTypes = 0;
+                for (String option : pattern.substring(dollar + 1).split(",")) {
+                    boolean negated = option.startsWith("~");
+                    String name = (negated ? option.substring(1) : option).toLowerCase(Locale.ROOT);
+                    ResourceType type = TYPE_OPTIONS.get(name);
+                    if (type != null) {
+                        if (negated) {
+                            excludedTypes |= 1 << type.ordinal();
+                        } else {
+                            includedTypes |= 1 << type.ordinal();
+                        }
+                    } else if (name.equals("third-party") || name.equals("3p")) {
+                        party = negated ? FIRST_PARTY : THIRD_PARTY;
+                    } else if (name.equals("first-party") || name.equals("1p")) {
+                        party = negated ? THIRD_PARTY : FIRST_PARTY;
+                    } else if (name.equals("match-case") && !negated) {
+                        matchCase = true;
+                    } else if (name.startsWith("domain=") && !negated) {
+                        for (String domain : option.substring("domain=".length()).split("\\|")) {
+                            if (domain.startsWith("~") && domain.length() > 1) {
+                                exclude = exclude != null ? exclude : new ArrayList<>();
+                                exclude.add(domain.substring(1));
+                            } else if (!domain.isEmpty()) {
+                                include = include != null ? include : new ArrayList<>();
+                                include.add(domain);
+                            }
+                        }
+                    } else {
+                        return null;
+                    }
+                }
+                types = (includedTypes != 0 ? includedTypes : excludedTypes != 0 ? ALL_TYPES : DEFAULT_TYPES) & ~excludedTypes;
+                pattern = pattern.substring(0, dollar);
+            }
+
+            if (pattern.length() > 1 && pattern.startsWith("/") && pattern.endsWith("/")) {
+                return null;
+            }
+            boolean anchorHost = false;
+            boolean anchorStart = false;
+            boolean anchorEnd = false;
+            if (pattern.startsWith("||")) {
+                anchorHost = true;
+                pattern = pattern.substring(2);
+            } else if (pattern.startsWith("|")) {
+                anchorStart = true;
+                pattern = pattern.substring(1);
+            }
+            if (pattern.endsWith("|")) {
+                anchorEnd = true;
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            if (pattern.indexOf('|') >= 0) {
+                return null;
+            }
+
+            return new Rule(line, pattern, anchorStart, anchorHost, anchorEnd, matchCase, types, party,
+                    include != null ? include.toArray(new String[0]) : null,
+                    exclude != null ? exclude.toArray(new String[0]) : null);
+        }
+    }
+}
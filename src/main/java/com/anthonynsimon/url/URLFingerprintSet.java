@@ -0,0 +1,227 @@
+package com.anthonynsimon.url;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * URLFingerprintSet is an exact set of 64-bit URL fingerprints stored off-heap in an open-addressed
+ * hash table, for "have we seen this URL" tests where false positives are not acceptable.
+ * <p>
+ * The table is split in segments, each one probed linearly and guarded by its own lock, so that
+ * threads working on different segments don't contend. Its capacity is fixed when created, adding
+ * to a segment that is full throws an IllegalStateException.
+ * <p>
+ * The set can be written to a file and later memory-mapped back with open(), in which case further
+ * changes go to the file.
+ */
+public final class URLFingerprintSet {
+    private static final int MAGIC = 0x4A554653;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int MAX_SEGMENTS = 1024;
+    private static final int MIN_CAPACITY = 64;
+
+    /**
+     * Segments need to be large enough for their load to stay close to the average one.
+     */
+    private static final int MIN_SEGMENT_CAPACITY = 4096;
+    private static final double MAX_LOAD_FACTOR = 0.9;
+
+    /**
+     * Empty slots are zero, so the zero fingerprint is tracked separately in the first long.
+     * Then follow the sizes of each segment and finally the table itself.
+     */
+    private static final int ZERO_INDEX = 0;
+    private static final int SIZES_INDEX = 1;
+
+    private final OffHeapLongArray data;
+    private final int segmentCount;
+    private final int segmentShift;
+    private final long segmentCapacity;
+    private final long segmentLimit;
+    private final long tableIndex;
+    private final Object[] locks;
+
+    private URLFingerprintSet(OffHeapLongArray data, int segmentCount, long segmentCapacity) {
+        this.data = data;
+        this.segmentCount = segmentCount;
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        this.segmentCapacity = segmentCapacity;
+        this.segmentLimit = (long) (segmentCapacity * MAX_LOAD_FACTOR);
+        this.tableIndex = SIZES_INDEX + segmentCount;
+        this.locks = new Object[segmentCount];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns a new empty set with room for at least the expected number of fingerprints.
+     */
+    public static URLFingerprintSet create(long expectedSize) {
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("expected size must be positive");
+        }
+        long slots = Long.highestOneBit((long) (expectedSize / 0.75) * 2 - 1);
+        slots = Math.max(slots, MIN_CAPACITY);
+        int segments = (int) Math.max(1, Math.min(MAX_SEGMENTS, slots / MIN_SEGMENT_CAPACITY));
+        long segmentCapacity = slots / segments;
+        OffHeapLongArray data = OffHeapLongArray.allocate(SIZES_INDEX + segments + slots);
+        return new URLFingerprintSet(data, segments, segmentCapacity);
+    }
+
+    /**
+     * Returns the set stored in the file, memory-mapped so that changes are written back to it.
+     *
+     * @throws IOException if the file could not be read or is not a set written by writeTo.
+     */
+    public static URLFingerprintSet open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not a URL fingerprint set file: " + file);
+            }
+            int segments = header.getInt();
+            long segmentCapacity = header.getLong();
+            long length = SIZES_INDEX + segments + segments * segmentCapacity;
+            if (Integer.bitCount(segments) != 1 || Long.bitCount(segmentCapacity) != 1
+                    || channel.size() < HEADER_SIZE + length * Long.BYTES) {
+                throw new IOException("corrupted URL fingerprint set file: " + file);
+            }
+            return new URLFingerprintSet(OffHeapLongArray.map(file, channel, HEADER_SIZE, length), segments, segmentCapacity);
+        }
+    }
+
+    /**
+     * Adds the fingerprint of the URL. Returns true if it was not already in the set.
+     *
+     * @throws IllegalStateException if the set is full.
+     */
+    public boolean add(URL url) {
+        return add(url.fingerprint64());
+    }
+
+    /**
+     * Adds the fingerprint. Returns true if it was not already in the set.
+     *
+     * @throws IllegalStateException if the set is full.
+     */
+    public boolean add(long fingerprint) {
+        long mixed = Murmur3Hasher.fmix64(fingerprint);
+        int segment = segment(mixed);
+        synchronized (locks[segment]) {
+            if (fingerprint == 0) {
+                if (data.get(ZERO_INDEX) != 0) {
+                    return false;
+                }
+                data.set(ZERO_INDEX, 1);
+                return true;
+            }
+
+            long slot = find(segment, mixed, fingerprint);
+            if (data.get(slot) == fingerprint) {
+                return false;
+            }
+            long size = data.get(SIZES_INDEX + segment);
+            if (size >= segmentLimit) {
+                throw new IllegalStateException("URL fingerprint set is full");
+            }
+            data.set(slot, fingerprint);
+            data.set(SIZES_INDEX + segment, size + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Returns true if the fingerprint of the URL is in the set.
+     */
+    public boolean contains(URL url) {
+        return contains(url.fingerprint64());
+    }
+
+    /**
+     * Returns true if the fingerprint is in the set.
+     */
+    public boolean contains(long fingerprint) {
+        long mixed = Murmur3Hasher.fmix64(fingerprint);
+        int segment = segment(mixed);
+        synchronized (locks[segment]) {
+            if (fingerprint == 0) {
+                return data.get(ZERO_INDEX) != 0;
+            }
+            return data.get(find(segment, mixed, fingerprint)) == fingerprint;
+        }
+    }
+
+    /**
+     * Returns the number of fingerprints in the set.
+     */
+    public long size() {
+        long size = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            synchronized (locks[i]) {
+                size += data.get(SIZES_INDEX + i);
+            }
+        }
+        synchronized (locks[segment(Murmur3Hasher.fmix64(0))]) {
+            return size + data.get(ZERO_INDEX);
+        }
+    }
+
+    /**
+     * Returns the total number of slots of the table.
+     */
+    public long capacity() {
+        return segmentCount * segmentCapacity;
+    }
+
+    /**
+     * Writes the set to the file, replacing it if it exists. It can be loaded again with open().
+     * Writing to the file it was opened from only flushes the pending changes.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(segmentCount).putLong(segmentCapacity);
+        header.clear();
+        data.writeTo(file, header);
+    }
+
+    /**
+     * Forces pending changes to be written to the file if the set was opened from one.
+     */
+    public void flush() {
+        data.force();
+    }
+
+    private int segment(long mixed) {
+        return segmentCount == 1 ? 0 : (int) (mixed >>> segmentShift);
+    }
+
+    /**
+     * Returns the index of the slot holding the fingerprint, or of the empty slot where it should go.
+     * Must be called while holding the lock of the segment.
+     */
+    private long find(int segment, long mixed, long fingerprint) {
+        long base = tableIndex + segment * segmentCapacity;
+        long mask = segmentCapacity - 1;
+        long i = mixed & mask;
+        while (true) {
+            long value = data.get(base + i);
+            if (value == 0 || value == fingerprint) {
+                return base + i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+}
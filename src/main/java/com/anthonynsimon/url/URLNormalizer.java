@@ -0,0 +1,231 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.MalformedURLException;
+
+/**
+ * URLNormalizer applies the syntax and scheme based normalizations of RFC 3986 section 6 to a URL,
+ * so that equivalent URLs end up with the same string representation.
+ * <p>
+ * The following steps are enabled by default and can be toggled individually:
+ * <p>
+ * - Lowercase the scheme and host: 'HTTP://Example.COM' == 'http://example.com'
+ * - Uppercase the hex digits of percent-escapes: '%3a' == '%3A'
+ * - Decode percent-encoded unreserved characters: '%7Euser' == '~user'
+ * - Remove dot segments from the path: '/a/./b/../c' == '/c'
+ * - Remove the default port of the scheme: 'http://example.com:80' == 'http://example.com'
+ * - Use '/' as the path if it is empty: 'http://example.com' == 'http://example.com/'
+ * <p>
+ * Removing the fragment is disabled by default.
+ * <p>
+ * Each component is scanned once and the result is built directly from the normalized components,
+ * without serializing and parsing the URL again. If nothing changes, the same URL instance is returned.
+ */
+public final class URLNormalizer {
+    private boolean lowercaseSchemeAndHost = true;
+    private boolean uppercaseEscapes = true;
+    private boolean decodeUnreserved = true;
+    private boolean removeDotSegments = true;
+    private boolean removeDefaultPort = true;
+    private boolean addEmptyPathSlash = true;
+    private boolean removeFragment = false;
+
+    public URLNormalizer setLowercaseSchemeAndHost(boolean lowercaseSchemeAndHost) {
+        this.lowercaseSchemeAndHost = lowercaseSchemeAndHost;
+        return this;
+    }
+
+    public URLNormalizer setUppercaseEscapes(boolean uppercaseEscapes) {
+        this.uppercaseEscapes = uppercaseEscapes;
+        return this;
+    }
+
+    public URLNormalizer setDecodeUnreserved(boolean decodeUnreserved) {
+        this.decodeUnreserved = decodeUnreserved;
+        return this;
+    }
+
+    public URLNormalizer setRemoveDotSegments(boolean removeDotSegments) {
+        this.removeDotSegments = removeDotSegments;
+        return this;
+    }
+
+    public URLNormalizer setRemoveDefaultPort(boolean removeDefaultPort) {
+        this.removeDefaultPort = removeDefaultPort;
+        return this;
+    }
+
+    public URLNormalizer setAddEmptyPathSlash(boolean addEmptyPathSlash) {
+        this.addEmptyPathSlash = addEmptyPathSlash;
+        return this;
+    }
+
+    public URLNormalizer setRemoveFragment(boolean removeFragment) {
+        this.removeFragment = removeFragment;
+        return this;
+    }
+
+    /**
+     * Returns the normalized URL.
+     */
+    public URL normalize(URL url) {
+        String scheme = url.getScheme();
+        String hostname = url.getHostname();
+        Integer port = url.getPort();
+        String path = url.getPath();
+        String rawPath = url.getRawPath();
+        String query = url.getQuery();
+        String fragment = url.getFragment();
+        String opaque = url.getOpaque();
+
+        if (lowercaseSchemeAndHost) {
+            scheme = toLowerCase(scheme);
+            hostname = toLowerCase(hostname);
+        }
+        if (removeDefaultPort && port != null && port.equals(defaultPort(scheme))) {
+            port = null;
+        }
+
+        if (opaque == null) {
+            if (rawPath != null) {
+                rawPath = normalizeEscapes(rawPath);
+                if (removeDotSegments) {
+                    rawPath = PathResolver.removeDotSegments(rawPath);
+                }
+                if (rawPath != url.getRawPath()) {
+                    path = decodePath(rawPath, path);
+                }
+            } else if (removeDotSegments) {
+                path = PathResolver.removeDotSegments(path);
+            }
+            if (addEmptyPathSlash && path == null && url.getHost() != null) {
+                path = "/";
+                rawPath = "/";
+            }
+        }
+
+        if (query != null) {
+            query = normalizeEscapes(query);
+        }
+        if (removeFragment) {
+            fragment = null;
+        } else if (fragment != null) {
+            fragment = normalizeEscapes(fragment);
+        }
+
+        if (scheme == url.getScheme()
+                && hostname == url.getHostname()
+                && port == url.getPort()
+                && path == url.getPath()
+                && rawPath == url.getRawPath()
+                && query == url.getQuery()
+                && fragment == url.getFragment()) {
+            return url;
+        }
+
+        return new URL(scheme, url.getUsername(), url.getPassword(), hostname, port, path, rawPath, query, fragment, opaque);
+    }
+
+    /**
+     * Returns the default port of the scheme, or null if it is not known.
+     */
+    static Integer defaultPort(String scheme) {
+        if (scheme == null) {
+            return null;
+        }
+        switch (scheme) {
+            case "http":
+            case "ws":
+                return 80;
+            case "https":
+            case "wss":
+                return 443;
+            case "ftp":
+                return 21;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the string with uppercased hex digits in its percent-escapes and with the
+     * unreserved characters decoded, depending on the enabled steps. The same instance is
+     * returned if nothing needed to change.
+     */
+    private String normalizeEscapes(String str) {
+        if (!uppercaseEscapes && !decodeUnreserved || str.indexOf('%') < 0) {
+            return str;
+        }
+
+        StringBuilder sb = null;
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            int hi = c == '%' && i + 2 < len ? hexValue(str.charAt(i + 1)) : -1;
+            int lo = hi >= 0 ? hexValue(str.charAt(i + 2)) : -1;
+            if (lo < 0) {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+
+            char decoded = (char) (hi << 4 | lo);
+            boolean decode = decodeUnreserved && isUnreserved(decoded);
+            boolean uppercase = uppercaseEscapes && (isLowerHex(str.charAt(i + 1)) || isLowerHex(str.charAt(i + 2)));
+            if (sb == null && (decode || uppercase)) {
+                sb = new StringBuilder(len);
+                sb.append(str, 0, i);
+            }
+            if (sb != null) {
+                if (decode) {
+                    sb.append(decoded);
+                } else {
+                    sb.append('%');
+                    sb.append(uppercase ? Character.toUpperCase(str.charAt(i + 1)) : str.charAt(i + 1));
+                    sb.append(uppercase ? Character.toUpperCase(str.charAt(i + 2)) : str.charAt(i + 2));
+                }
+            }
+            i += 2;
+        }
+
+        return sb == null ? str : sb.toString();
+    }
+
+    /**
+     * Returns the decoded form of the normalized raw path. Falls back to removing the dot segments
+     * of the previously decoded path if the raw path can't be decoded.
+     */
+    private String decodePath(String rawPath, String path) {
+        try {
+            return PercentEncoder.decode(rawPath);
+        } catch (MalformedURLException e) {
+            return removeDotSegments ? PathResolver.removeDotSegments(path) : path;
+        }
+    }
+
+    private static String toLowerCase(String str) {
+        return str != null ? str.toLowerCase() : null;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return 'A' <= c && c <= 'Z' || 'a' <= c && c <= 'z' || '0' <= c && c <= '9'
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isLowerHex(char c) {
+        return 'a' <= c && c <= 'f';
+    }
+
+    private static int hexValue(char c) {
+        if ('0' <= c && c <= '9') {
+            return c - '0';
+        }
+        if ('a' <= c && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if ('A' <= c && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,269 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * URLPartitioner assigns URLs to partitions or cluster nodes by their host, registrable domain or
+ * whole URL, so that the work for a host always goes to the same place.
+ * <p>
+ * Keys are 64-bit MurmurHash3 hashes of the URL components, computed without toString(), so they
+ * are stable between processes and versions of the JVM. Keys are then assigned:
+ * <p>
+ * To numbered partitions with jump consistent hashing (Lamping and Veach). Going from n to n + 1
+ * partitions only moves 1 / (n + 1) of the keys, all of them to the new partition.
+ * <p>
+ * To named, weighted nodes with rendezvous hashing: every node scores the key and the highest score
+ * wins. Adding or removing a node only moves the keys that the node wins or had won, and a node with
+ * twice the weight gets twice the keys.
+ * <p>
+ * For example:
+ * <p>
+ * URLPartitioner partitioner = new URLPartitioner.Builder(URLPartitioner.Key.HOST).setPartitions(64).build();
+ * partitioner.partition(URL.parse("http://example.com/a")) == partitioner.partition(URL.parse("http://example.com/b"))
+ * <p>
+ * A URLPartitioner is immutable and can be shared between threads.
+ */
+public final class URLPartitioner {
+
+    /**
+     * The part of the URL that decides its partition.
+     */
+    public enum Key {
+        /**
+         * The hostname, ignoring the case of ASCII letters.
+         */
+        HOST,
+        /**
+         * The registrable domain ('example.co.uk'), or the hostname if it has none.
+         */
+        REGISTRABLE_DOMAIN,
+        /**
+         * The whole URL, as identified by fingerprint64().
+         */
+        URL
+    }
+
+    private final Key key;
+    private final int partitions;
+
+    /**
+     * Names, hashes and weights of the nodes, or null when partitioning by number.
+     */
+    private final String[] nodes;
+    private final long[] nodeHashes;
+    private final double[] weights;
+    private final boolean weighted;
+
+    private URLPartitioner(Builder builder) {
+        this.key = builder.key;
+        if (builder.nodes.isEmpty()) {
+            this.partitions = builder.partitions;
+            this.nodes = null;
+            this.nodeHashes = null;
+            this.weights = null;
+            this.weighted = false;
+            return;
+        }
+        int count = builder.nodes.size();
+        this.partitions = count;
+        this.nodes = builder.nodes.toArray(new String[0]);
+        this.nodeHashes = new long[count];
+        this.weights = new double[count];
+        boolean weighted = false;
+        for (int i = 0; i < count; i++) {
+            nodeHashes[i] = Murmur3Hasher.fmix64(Murmur3Hasher.hash64(nodes[i]));
+            weights[i] = builder.weights.get(i);
+            weighted |= weights[i] != weights[0];
+        }
+        this.weighted = weighted;
+    }
+
+    /**
+     * Returns the partition of the URL, from 0 to size() - 1. For nodes, it's the index of the node
+     * in the order they were added.
+     *
+     * @throws IllegalArgumentException if the partitioner is keyed by host and the URL has none.
+     */
+    public int partition(URL url) {
+        return partition(key(url));
+    }
+
+    /**
+     * Returns the partition of a key computed by key(URL).
+     */
+    public int partition(long key) {
+        if (nodes == null) {
+            return jumpHash(key, partitions);
+        }
+        return weighted ? weightedRendezvous(key) : rendezvous(key);
+    }
+
+    /**
+     * Returns the name of the node of the URL, or the number of its partition if the partitioner has
+     * no nodes.
+     *
+     * @throws IllegalArgumentException if the partitioner is keyed by host and the URL has none.
+     */
+    public String node(URL url) {
+        int partition = partition(url);
+        return nodes != null ? nodes[partition] : String.valueOf(partition);
+    }
+
+    /**
+     * Returns the 64-bit key the URL is partitioned by.
+     *
+     * @throws IllegalArgumentException if the partitioner is keyed by host and the URL has none.
+     */
+    public long key(URL url) {
+        if (key == Key.URL) {
+            return url.fingerprint64();
+        }
+        String hostname = url.getHostname();
+        if (hostname == null) {
+            throw new IllegalArgumentException("url has no host: " + url);
+        }
+        if (key == Key.REGISTRABLE_DOMAIN) {
+            String domain = url.getRegistrableDomain();
+            if (domain != null) {
+                hostname = domain;
+            }
+        }
+        Murmur3Hasher hasher = new Murmur3Hasher().putInt(hostname.length());
+        for (int i = 0; i < hostname.length(); i++) {
+            char c = hostname.charAt(i);
+            hasher.putChar(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return hasher.finishHigh();
+    }
+
+    /**
+     * Returns the number of partitions or nodes.
+     */
+    public int size() {
+        return partitions;
+    }
+
+    /**
+     * Returns the bucket of the key among n buckets, from "A Fast, Minimal Memory, Consistent Hash
+     * Algorithm" by Lamping and Veach.
+     */
+    static int jumpHash(long key, int n) {
+        long b = -1;
+        long j = 0;
+        while (j < n) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * Returns the node with the highest hash of the key and the node. Ties go to the first node.
+     */
+    private int rendezvous(long key) {
+        int best = 0;
+        long bestScore = Murmur3Hasher.fmix64(key ^ nodeHashes[0]);
+        for (int i = 1; i < nodeHashes.length; i++) {
+            long score = Murmur3Hasher.fmix64(key ^ nodeHashes[i]);
+            if (Long.compareUnsigned(score, bestScore) > 0) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the node with the highest score -weight / ln(u), where u is the hash of the key and the
+     * node mapped to (0, 1). The scores are exponentially distributed, so each node wins a share of
+     * the keys proportional to its weight.
+     */
+    private int weightedRendezvous(long key) {
+        int best = 0;
+        double bestScore = -1;
+        for (int i = 0; i < nodeHashes.length; i++) {
+            long hash = Murmur3Hasher.fmix64(key ^ nodeHashes[i]);
+            double u = ((hash >>> 11) + 0.5) / (1L << 53);
+            double score = -weights[i] / Math.log(u);
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Builder configures a URLPartitioner with either a number of partitions or a set of nodes.
+     */
+    public static final class Builder {
+        private final Key key;
+        private int partitions;
+        private final List<String> nodes = new ArrayList<>();
+        private final List<Double> weights = new ArrayList<>();
+
+        /**
+         * Starts a partitioner keyed by the part of the URL.
+         */
+        public Builder(Key key) {
+            if (key == null) {
+                throw new IllegalArgumentException("key must not be null");
+            }
+            this.key = key;
+        }
+
+        /**
+         * Partitions URLs into numbered partitions with jump consistent hashing.
+         *
+         * @throws IllegalArgumentException if partitions is not positive.
+         */
+        public Builder setPartitions(int partitions) {
+            if (partitions <= 0) {
+                throw new IllegalArgumentException("partitions must be positive");
+            }
+            this.partitions = partitions;
+            return this;
+        }
+
+        /**
+         * Adds a node with a weight of 1.
+         *
+         * @throws IllegalArgumentException if the node was already added.
+         */
+        public Builder addNode(String name) {
+            return addNode(name, 1);
+        }
+
+        /**
+         * Adds a node that gets a share of the URLs proportional to its weight. Nodes are identified by
+         * name, so the same names give the same assignments on any process.
+         *
+         * @throws IllegalArgumentException if the node was already added or the weight is not positive.
+         */
+        public Builder addNode(String name, double weight) {
+            if (nodes.contains(name)) {
+                throw new IllegalArgumentException("node already added: " + name);
+            }
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("weight must be positive: " + weight);
+            }
+            nodes.add(name);
+            weights.add(weight);
+            return this;
+        }
+
+        /**
+         * Returns the partitioner.
+         *
+         * @throws IllegalStateException if neither partitions nor nodes were set, or both were.
+         */
+        public URLPartitioner build() {
+            if (partitions > 0 == !nodes.isEmpty()) {
+                throw new IllegalStateException("either partitions or nodes must be set");
+            }
+            return new URLPartitioner(this);
+        }
+    }
+}
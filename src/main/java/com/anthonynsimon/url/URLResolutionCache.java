@@ -0,0 +1,229 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.InvalidURLReferenceException;
+import com.anthonynsimon.url.exceptions.MalformedURLException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * URLResolutionCache memoizes the results of resolving references against base URLs. It's meant for
+ * crawling, where every page of a site links to the same navigation references.
+ * <p>
+ * Entries are keyed by the reference and by the parts of the base URL the result depends on. For
+ * relative paths that is the directory of the base path, so 'about.html' resolved against
+ * 'http://example.com/docs/a.html' and 'http://example.com/docs/b.html' is only computed once.
+ * <p>
+ * The cache holds at most maxSize entries, evicting the least recently used ones first. It is split
+ * in segments with their own lock and is safe to use from multiple threads.
+ */
+public final class URLResolutionCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache that holds at most maxSize entries.
+     */
+    public URLResolutionCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("max size must be positive");
+        }
+        int segmentSize = (maxSize + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the reference resolved against the base URL, from the cache if it was resolved before.
+     *
+     * @throws MalformedURLException        if the reference could not be parsed.
+     * @throws InvalidURLReferenceException if the base URL is not absolute.
+     */
+    public URL resolve(URL base, String ref) throws MalformedURLException, InvalidURLReferenceException {
+        if (base == null || ref == null) {
+            throw new InvalidURLReferenceException("base and reference urls must not be null");
+        }
+        Key key = new Key(base, ref);
+        Segment segment = segments[(key.hash ^ key.hash >>> 16) & (SEGMENTS - 1)];
+        URL resolved;
+        synchronized (segment) {
+            resolved = segment.get(key);
+        }
+        if (resolved != null) {
+            hits.increment();
+            return resolved;
+        }
+
+        misses.increment();
+        resolved = base.resolveReference(ref);
+        Key stored = key.trimmed();
+        synchronized (segment) {
+            segment.put(stored, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns the number of lookups that were found in the cache.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to be resolved.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of lookups that were found in the cache, or 0 if there were none.
+     */
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all the entries and resets the statistics.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Segment is a map that drops its least recently used entry once it is over capacity.
+     */
+    private static final class Segment extends LinkedHashMap<Key, URL> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, URL> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * Key is a reference together with the parts of the base URL the result depends on, of which only
+     * the first pathLength characters of the path are relevant. Lookups compare the path in place so
+     * that no substring is created, and keys are trimmed to the relevant part before being stored.
+     */
+    private static final class Key {
+        private final String scheme;
+        private final String username;
+        private final String password;
+        private final String host;
+        private final String opaque;
+        private final String path;
+        private final int pathLength;
+        private final String ref;
+        private final int hash;
+
+        Key(URL base, String ref) {
+            this(base.getScheme(), base.getUsername(), base.getPassword(), base.getHost(), base.getOpaque(),
+                    base.getPath(), relevantPathLength(base.getPath(), ref), ref);
+        }
+
+        private Key(String scheme, String username, String password, String host, String opaque,
+                    String path, int pathLength, String ref) {
+            this.scheme = scheme;
+            this.username = username;
+            this.password = password;
+            this.host = host;
+            this.opaque = opaque;
+            this.path = path;
+            this.pathLength = pathLength;
+            this.ref = ref;
+
+            int h = ref.hashCode();
+            h = 31 * h + Objects.hashCode(host);
+            h = 31 * h + Objects.hashCode(scheme);
+            for (int i = 0; i < pathLength; i++) {
+                h = 31 * h + path.charAt(i);
+            }
+            this.hash = h;
+        }
+
+        /**
+         * Returns the key with only the relevant part of the path, to be kept in the cache.
+         */
+        Key trimmed() {
+            if (path == null || path.length() == pathLength) {
+                return this;
+            }
+            return new Key(scheme, username, password, host, opaque, path.substring(0, pathLength), pathLength, ref);
+        }
+
+        /**
+         * Returns how many characters of the base path the result of resolving ref depends on.
+         */
+        private static int relevantPathLength(String path, String ref) {
+            if (path == null) {
+                return 0;
+            }
+            if (ref.isEmpty() || ref.charAt(0) == '#' || ref.charAt(0) == '?') {
+                return path.length();
+            }
+            if (ref.charAt(0) == '/') {
+                return 0;
+            }
+            return path.lastIndexOf('/') + 1;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            if (hash != key.hash || pathLength != key.pathLength || !ref.equals(key.ref)) {
+                return false;
+            }
+            return Objects.equals(scheme, key.scheme)
+                    && Objects.equals(host, key.host)
+                    && Objects.equals(username, key.username)
+                    && Objects.equals(password, key.password)
+                    && Objects.equals(opaque, key.opaque)
+                    && (pathLength == 0 || path.regionMatches(0, key.path, 0, pathLength));
+        }
+    }
+}
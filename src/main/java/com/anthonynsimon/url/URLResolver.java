@@ -0,0 +1,194 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.InvalidURLReferenceException;
+import com.anthonynsimon.url.exceptions.MalformedURLException;
+
+import java.util.List;
+
+/**
+ * URLResolver resolves many references against the same base URL, as is the case for the links
+ * of a web page. The parts of the base that every resolution needs are computed once.
+ * <p>
+ * References are classified by their first characters, and fragments ('#top'), queries ('?page=2'),
+ * absolute paths ('/about') and relative paths ('../img/logo.png') are resolved straight from the
+ * reference string without parsing it into a URL first. Any other reference is resolved with
+ * URL.resolveReference. The results are the same in both cases.
+ * <p>
+ * For example:
+ * <p>
+ * URLResolver resolver = new URLResolver(URL.parse("http://example.com/docs/index.html"));
+ * resolver.resolve("../about?lang=en") == http://example.com/about?lang=en
+ */
+public final class URLResolver {
+    private final URL base;
+
+    /**
+     * Path of the base once resolved, used as is for fragment and query references.
+     */
+    private final String basePath;
+
+    /**
+     * Path of the base up to and including the last slash, relative paths are appended to it.
+     */
+    private final String baseDirectory;
+
+    /**
+     * Creates a resolver for the provided base URL.
+     *
+     * @throws InvalidURLReferenceException if the base URL is not absolute.
+     */
+    public URLResolver(URL base) throws InvalidURLReferenceException {
+        if (base == null || !base.isAbsolute()) {
+            throw new InvalidURLReferenceException("base url is not absolute");
+        }
+        this.base = base;
+        this.basePath = PathResolver.resolve(base.getPath(), null);
+        String path = base.getPath();
+        this.baseDirectory = path != null ? path.substring(0, path.lastIndexOf('/') + 1) : "";
+    }
+
+    /**
+     * Returns the base URL references are resolved against.
+     */
+    public URL getBase() {
+        return base;
+    }
+
+    /**
+     * Returns the reference resolved against the base URL.
+     *
+     * @throws MalformedURLException        if the reference could not be parsed.
+     * @throws InvalidURLReferenceException if the reference could not be resolved.
+     */
+    public URL resolve(String ref) throws MalformedURLException, InvalidURLReferenceException {
+        if (ref == null || ref.isEmpty()) {
+            throw new MalformedURLException("raw url string is empty");
+        }
+        if (base.isOpaque()) {
+            return base.resolveReference(URL.parse(ref));
+        }
+
+        switch (ref.charAt(0)) {
+            case '#':
+                if (ref.indexOf('#', 1) < 0) {
+                    return build(basePath, null, ref.length() > 1 ? ref.substring(1) : null);
+                }
+                break;
+            case '?':
+                return resolveQuery(ref);
+            case '/':
+                if (ref.length() == 1 || ref.charAt(1) != '/') {
+                    return resolvePath(ref, true);
+                }
+                break;
+            default:
+                return resolvePath(ref, false);
+        }
+        return base.resolveReference(URL.parse(ref));
+    }
+
+    /**
+     * Resolves every reference of refs into the same index of out. References that can't be parsed or
+     * resolved are left as null. Returns the number of references that were resolved.
+     *
+     * @throws IllegalArgumentException if out is shorter than refs.
+     */
+    public int resolveAll(String[] refs, URL[] out) {
+        if (out.length < refs.length) {
+            throw new IllegalArgumentException("output array is shorter than the references array");
+        }
+        int resolved = 0;
+        for (int i = 0; i < refs.length; i++) {
+            out[i] = tryResolve(refs[i]);
+            if (out[i] != null) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolves every reference of refs into the same index of out. References that can't be parsed or
+     * resolved are left as null. Returns the number of references that were resolved.
+     *
+     * @throws IllegalArgumentException if out is shorter than refs.
+     */
+    public int resolveAll(List<? extends CharSequence> refs, URL[] out) {
+        if (out.length < refs.size()) {
+            throw new IllegalArgumentException("output array is shorter than the references list");
+        }
+        int resolved = 0;
+        for (int i = 0; i < refs.size(); i++) {
+            CharSequence ref = refs.get(i);
+            out[i] = tryResolve(ref != null ? ref.toString() : null);
+            if (out[i] != null) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    private URL tryResolve(String ref) {
+        try {
+            return resolve(ref);
+        } catch (MalformedURLException | InvalidURLReferenceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves a reference made of a query and an optional fragment ('?q=1#top').
+     */
+    private URL resolveQuery(String ref) {
+        int fragmentIndex = ref.lastIndexOf('#');
+        int queryEnd = fragmentIndex >= 0 ? fragmentIndex : ref.length();
+        String query = queryEnd > 1 ? ref.substring(1, queryEnd) : "?";
+        return build(basePath, query, fragment(ref, fragmentIndex));
+    }
+
+    /**
+     * Resolves a reference made of a path, an optional query and an optional fragment. Falls back to
+     * parsing the reference if what looks like a path could be a scheme ('mailto:...').
+     */
+    private URL resolvePath(String ref, boolean absolute) throws MalformedURLException, InvalidURLReferenceException {
+        int fragmentIndex = ref.lastIndexOf('#');
+        int end = fragmentIndex >= 0 ? fragmentIndex : ref.length();
+        int queryIndex = ref.indexOf('?');
+        if (queryIndex >= end) {
+            queryIndex = -1;
+        }
+        int pathEnd = queryIndex >= 0 ? queryIndex : end;
+
+        int colon = ref.indexOf(':');
+        if (colon >= 0 && colon < pathEnd || pathEnd == 0) {
+            return base.resolveReference(URL.parse(ref));
+        }
+
+        String query = null;
+        if (queryIndex >= 0) {
+            query = queryIndex + 1 < end ? ref.substring(queryIndex + 1, end) : "?";
+        }
+        String refPath = PercentEncoder.decode(ref.substring(0, pathEnd));
+        String path = PathResolver.resolve(absolute ? null : baseDirectory, refPath);
+        return build(path, query, fragment(ref, fragmentIndex));
+    }
+
+    private static String fragment(String ref, int fragmentIndex) {
+        if (fragmentIndex < 0 || fragmentIndex + 1 == ref.length()) {
+            return null;
+        }
+        return ref.substring(fragmentIndex + 1);
+    }
+
+    private URL build(String path, String query, String fragment) {
+        return new URLBuilder()
+                .setScheme(base.getScheme())
+                .setUsername(base.getUsername())
+                .setPassword(base.getPassword())
+                .setHost(base.getHost())
+                .setPath(path)
+                .setQuery(query)
+                .setFragment(fragment)
+                .build();
+    }
+}
@@ -0,0 +1,496 @@
+package com.anthonynsimon.url;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URLRouter matches URL paths against a set of route templates such as '/users/{id}/posts/{postId}'
+ * or '/static/**'. Segments of a template are:
+ * <p>
+ * 'users' matches that exact segment, compared with the escaped path.
+ * '{id}' matches any non-empty segment and captures it as the variable 'id'.
+ * '**' must be the last segment and matches the rest of the path, including nothing at all.
+ * <p>
+ * Templates are compiled into a trie of segments. Static children are found in a hash table keyed by
+ * the segment in place, so they take constant time whatever the number of routes. When several
+ * children could match, static segments are tried first, then variables, then '**', backtracking to
+ * the next one if the rest of the path doesn't match. Matching doesn't allocate: captured variables
+ * are recorded as offsets into the path in a reusable Match.
+ * <p>
+ * Routes are numbered in the order they were added. A URLRouter is immutable and can be shared
+ * between threads, but each thread needs its own Match.
+ */
+public final class URLRouter {
+    private static final String WILDCARD = "**";
+
+    /**
+     * Static children of node i are in the open addressing table
+     * [tableStart[i], tableStart[i] + tableMask[i] + 1) of tableKeys and tableTargets, or none if
+     * tableMask[i] is -1. Empty slots have a null key.
+     */
+    private final int[] tableStart;
+    private final int[] tableMask;
+    private final String[] tableKeys;
+    private final int[] tableTargets;
+
+    /**
+     * Child of node i for a variable segment, or -1.
+     */
+    private final int[] variableChild;
+
+    /**
+     * Route that ends at node i, or the route whose '**' follows node i, or -1.
+     */
+    private final int[] route;
+    private final int[] wildcardRoute;
+
+    private final String[] templates;
+    private final String[][] variableNames;
+    private final int maxVariables;
+
+    private URLRouter(Builder builder) {
+        List<Builder.Node> nodes = new ArrayList<>();
+        builder.root.collect(nodes);
+        int count = nodes.size();
+        this.tableStart = new int[count];
+        this.tableMask = new int[count];
+        this.variableChild = new int[count];
+        this.route = new int[count];
+        this.wildcardRoute = new int[count];
+
+        int slots = 0;
+        for (Builder.Node node : nodes) {
+            slots += tableSize(node.children.size());
+        }
+        this.tableKeys = new String[slots];
+        this.tableTargets = new int[slots];
+
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            Builder.Node node = nodes.get(i);
+            int size = tableSize(node.children.size());
+            tableStart[i] = next;
+            tableMask[i] = size - 1;
+            for (Map.Entry<String, Builder.Node> child : node.children.entrySet()) {
+                int slot = spread(child.getKey().hashCode()) & (size - 1);
+                while (tableKeys[next + slot] != null) {
+                    slot = (slot + 1) & (size - 1);
+                }
+                tableKeys[next + slot] = child.getKey();
+                tableTargets[next + slot] = child.getValue().index;
+            }
+            next += size;
+            variableChild[i] = node.variable != null ? node.variable.index : -1;
+            route[i] = node.route;
+            wildcardRoute[i] = node.wildcardRoute;
+        }
+
+        this.templates = builder.templates.toArray(new String[0]);
+        this.variableNames = builder.variableNames.toArray(new String[0][]);
+        int max = 0;
+        for (String[] names : variableNames) {
+            max = Math.max(max, names.length);
+        }
+        this.maxVariables = max;
+    }
+
+    /**
+     * Returns a Match that can hold the variables of any route of this router.
+     */
+    public Match newMatch() {
+        return new Match(this);
+    }
+
+    /**
+     * Matches the escaped path of the URL. A URL without a path is matched as '/'.
+     *
+     * @return the matched route or -1 if no route matches.
+     * @throws IllegalArgumentException if the match was created by another router.
+     */
+    public int match(URL url, Match match) {
+        String path = url.serializedPath();
+        if (path == null) {
+            return match("/", match);
+        }
+        if (url.pathNeedsSlash()) {
+            // The path is written with a leading slash, so its first segment starts at 0.
+            return matchSegments(path, 0, path.length(), match);
+        }
+        return match(path, 0, path.length(), match);
+    }
+
+    /**
+     * Matches an escaped path, which must start with '/' and not include the query.
+     *
+     * @return the matched route or -1 if no route matches.
+     * @throws IllegalArgumentException if the match was created by another router.
+     */
+    public int match(CharSequence path, Match match) {
+        return match(path, 0, path.length(), match);
+    }
+
+    /**
+     * Matches the escaped path in path[start, end). Captured offsets are relative to path.
+     *
+     * @return the matched route or -1 if no route matches.
+     * @throws IllegalArgumentException if the match was created by another router.
+     */
+    public int match(CharSequence path, int start, int end, Match match) {
+        if (start >= end || path.charAt(start) != '/') {
+            return matchSegments(path, end, -1, match);
+        }
+        return matchSegments(path, start + 1, end, match);
+    }
+
+    /**
+     * Returns the number of routes.
+     */
+    public int size() {
+        return templates.length;
+    }
+
+    /**
+     * Returns the template of the route.
+     */
+    public String getTemplate(int route) {
+        return templates[route];
+    }
+
+    /**
+     * Returns the number of variables captured by the route.
+     */
+    public int getVariableCount(int route) {
+        return variableNames[route].length;
+    }
+
+    /**
+     * Matches the segments of path[start, end) from the root. An end of -1 resets the match and fails.
+     */
+    private int matchSegments(CharSequence path, int start, int end, Match match) {
+        if (match.router != this) {
+            throw new IllegalArgumentException("match was created by another router");
+        }
+        match.path = path;
+        match.route = -1;
+        match.wildcardStart = -1;
+        if (end < 0) {
+            return -1;
+        }
+        match.route = matchSegment(0, path, start, end, match, 0);
+        return match.route;
+    }
+
+    /**
+     * Matches the segment starting at segmentStart against the children of node.
+     */
+    private int matchSegment(int node, CharSequence path, int segmentStart, int end, Match match, int captured) {
+        int segmentEnd = segmentStart;
+        while (segmentEnd < end && path.charAt(segmentEnd) != '/') {
+            segmentEnd++;
+        }
+        boolean last = segmentEnd >= end;
+
+        int mask = tableMask[node];
+        if (mask >= 0) {
+            int base = tableStart[node];
+            int slot = spread(hash(path, segmentStart, segmentEnd)) & mask;
+            String key;
+            while ((key = tableKeys[base + slot]) != null) {
+                if (regionEquals(key, path, segmentStart, segmentEnd)) {
+                    int found = matchChild(tableTargets[base + slot], path, segmentEnd, end, last, match, captured);
+                    if (found >= 0) {
+                        return found;
+                    }
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        int variable = variableChild[node];
+        if (variable >= 0 && segmentEnd > segmentStart) {
+            match.starts[captured] = segmentStart;
+            match.ends[captured] = segmentEnd;
+            int found = matchChild(variable, path, segmentEnd, end, last, match, captured + 1);
+            if (found >= 0) {
+                return found;
+            }
+        }
+
+        int wildcard = wildcardRoute[node];
+        if (wildcard >= 0) {
+            match.wildcardStart = segmentStart;
+            return wildcard;
+        }
+        return -1;
+    }
+
+    private int matchChild(int child, CharSequence path, int segmentEnd, int end, boolean last, Match match, int captured) {
+        if (!last) {
+            return matchSegment(child, path, segmentEnd + 1, end, match, captured);
+        }
+        if (route[child] >= 0) {
+            return route[child];
+        }
+        if (wildcardRoute[child] >= 0) {
+            match.wildcardStart = end;
+            return wildcardRoute[child];
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(String key, CharSequence path, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != path.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the same hash as String.hashCode for str[start, end).
+     */
+    private static int hash(CharSequence str, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + str.charAt(i);
+        }
+        return h;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSize(int children) {
+        if (children == 0) {
+            return 0;
+        }
+        return Integer.highestOneBit(children * 2 - 1) << 1;
+    }
+
+    /**
+     * Match holds the result of the last call to URLRouter.match. It's reused between calls so that
+     * matching doesn't allocate.
+     */
+    public static final class Match {
+        private final URLRouter router;
+        private final int[] starts;
+        private final int[] ends;
+        private CharSequence path;
+        private int route = -1;
+        private int wildcardStart = -1;
+
+        private Match(URLRouter router) {
+            this.router = router;
+            this.starts = new int[router.maxVariables];
+            this.ends = new int[router.maxVariables];
+        }
+
+        /**
+         * Returns the matched route or -1 if the last match failed.
+         */
+        public int getRoute() {
+            return route;
+        }
+
+        /**
+         * Returns the path of the last match.
+         */
+        public CharSequence getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the number of variables captured by the matched route.
+         */
+        public int getVariableCount() {
+            return route >= 0 ? router.variableNames[route].length : 0;
+        }
+
+        /**
+         * Returns the name of the variable at index, in the order they appear in the template.
+         */
+        public String getName(int index) {
+            checkIndex(index);
+            return router.variableNames[route][index];
+        }
+
+        /**
+         * Returns the offset in the path where the variable at index starts.
+         */
+        public int getStart(int index) {
+            checkIndex(index);
+            return starts[index];
+        }
+
+        /**
+         * Returns the offset in the path where the variable at index ends.
+         */
+        public int getEnd(int index) {
+            checkIndex(index);
+            return ends[index];
+        }
+
+        /**
+         * Returns the escaped value of the variable at index.
+         */
+        public String getValue(int index) {
+            checkIndex(index);
+            return path.subSequence(starts[index], ends[index]).toString();
+        }
+
+        /**
+         * Returns the escaped value of the variable with the name, or null if the matched route has no
+         * such variable.
+         */
+        public String getValue(String name) {
+            int count = getVariableCount();
+            for (int i = 0; i < count; i++) {
+                if (router.variableNames[route][i].equals(name)) {
+                    return getValue(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the offset in the path where the part matched by '**' starts, or -1 if the matched
+         * route doesn't end with '**'.
+         */
+        public int getWildcardStart() {
+            return wildcardStart;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= getVariableCount()) {
+                throw new IndexOutOfBoundsException("variable " + index + " of " + getVariableCount());
+            }
+        }
+    }
+
+    /**
+     * Builder collects the route templates of a URLRouter.
+     */
+    public static final class Builder {
+        private final Node root = new Node();
+        private final List<String> templates = new ArrayList<>();
+        private final List<String[]> variableNames = new ArrayList<>();
+
+        /**
+         * Adds a route template. Routes are numbered in the order they are added, starting at 0.
+         *
+         * @throws IllegalArgumentException if the template is not valid or has the same segments as
+         *                                  a route already added.
+         */
+        public Builder add(String template) {
+            if (!template.startsWith("/")) {
+                throw new IllegalArgumentException("template must start with '/': " + template);
+            }
+            int id = templates.size();
+            List<String> names = new ArrayList<>();
+            Node node = root;
+            int start = 1;
+            while (true) {
+                int slash = template.indexOf('/', start);
+                int end = slash >= 0 ? slash : template.length();
+                String segment = template.substring(start, end);
+                if (segment.equals(WILDCARD)) {
+                    if (slash >= 0) {
+                        throw new IllegalArgumentException("'**' must be the last segment: " + template);
+                    }
+                    if (node.wildcardRoute >= 0) {
+                        throw duplicate(template, node.wildcardRoute);
+                    }
+                    node.wildcardRoute = id;
+                    break;
+                }
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    String name = segment.substring(1, segment.length() - 1);
+                    if (name.isEmpty() || name.indexOf('{') >= 0 || name.indexOf('}') >= 0 || names.contains(name)) {
+                        throw new IllegalArgumentException("invalid variable '" + name + "' in template: " + template);
+                    }
+                    names.add(name);
+                    if (node.variable == null) {
+                        node.variable = new Node();
+                    }
+                    node = node.variable;
+                } else {
+                    if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0 || segment.contains("*")) {
+                        throw new IllegalArgumentException("invalid segment '" + segment + "' in template: " + template);
+                    }
+                    Node child = node.children.get(segment);
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(segment, child);
+                    }
+                    node = child;
+                }
+                if (slash < 0) {
+                    if (node.route >= 0) {
+                        throw duplicate(template, node.route);
+                    }
+                    node.route = id;
+                    break;
+                }
+                start = slash + 1;
+            }
+            templates.add(template);
+            variableNames.add(names.toArray(new String[0]));
+            return this;
+        }
+
+        /**
+         * Adds every template, numbering them in order.
+         *
+         * @throws IllegalArgumentException if a template is not valid or repeated.
+         */
+        public Builder addAll(Iterable<String> templates) {
+            for (String template : templates) {
+                add(template);
+            }
+            return this;
+        }
+
+        /**
+         * Returns a router of the templates added so far.
+         */
+        public URLRouter build() {
+            return new URLRouter(this);
+        }
+
+        private IllegalArgumentException duplicate(String template, int route) {
+            return new IllegalArgumentException("template " + template + " conflicts with " + templates.get(route));
+        }
+
+        private static final class Node {
+            private final Map<String, Node> children = new HashMap<>();
+            private Node variable;
+            private int route = -1;
+            private int wildcardRoute = -1;
+            private int index;
+
+            /**
+             * Numbers the nodes of the subtree breadth first and adds them to the list.
+             */
+            private void collect(List<Node> nodes) {
+                nodes.add(this);
+                for (int head = 0; head < nodes.size(); head++) {
+                    Node node = nodes.get(head);
+                    node.index = head;
+                    nodes.addAll(node.children.values());
+                    if (node.variable != null) {
+                        nodes.add(node.variable);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheKeyBuilderTest {
+
+    @Test
+    public void testSortsParams() throws Exception {
+        CacheKeyBuilder builder = new CacheKeyBuilder();
+        Assert.assertEquals("http://example.com/a?a=1&b=2", builder.build(URL.parse("http://example.com/a?b=2&a=1")));
+        Assert.assertEquals("http://example.com/a?a=2&a=1&ab=3", builder.build(URL.parse("http://example.com/a?ab=3&a=2&a=1")));
+        Assert.assertEquals("http://example.com/a?a&b=", builder.build(URL.parse("http://example.com/a?b=&a&&")));
+    }
+
+    @Test
+    public void testNoQuery() throws Exception {
+        CacheKeyBuilder builder = new CacheKeyBuilder();
+        Assert.assertEquals("http://example.com", builder.build(URL.parse("http://example.com")));
+        Assert.assertEquals("http://example.com/", builder.build(URL.parse("http://example.com/?")));
+        Assert.assertEquals("https://example.com:8080/path", builder.build(URL.parse("https://example.com:8080/path#frag")));
+    }
+
+    @Test
+    public void testDeny() throws Exception {
+        CacheKeyBuilder builder = new CacheKeyBuilder()
+                .deny("fbclid")
+                .deny("sid")
+                .denyPrefix("utm_");
+
+        Assert.assertEquals("http://example.com/a?a=1&b=2",
+                builder.build(URL.parse("http://example.com/a?utm_source=x&b=2&fbclid=abc&a=1&sid=1#top")));
+        Assert.assertEquals("http://example.com/a?sidx=1&utm=2",
+                builder.build(URL.parse("http://example.com/a?utm=2&sidx=1")));
+        Assert.assertEquals("http://example.com/a",
+                builder.build(URL.parse("http://example.com/a?utm_medium=x&fbclid=abc")));
+    }
+
+    @Test
+    public void testAllow() throws Exception {
+        CacheKeyBuilder builder = new CacheKeyBuilder()
+                .allow("q")
+                .allow("page")
+                .deny("q");
+
+        Assert.assertEquals("http://example.com/search?page=2&q=jurl",
+                builder.build(URL.parse("http://example.com/search?session=1&q=jurl&ref=home&page=2")));
+    }
+
+    @Test
+    public void testManyParams() throws Exception {
+        StringBuilder query = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            query.append(i == 0 ? "" : "&").append("p").append(99 - i).append("=").append(i);
+        }
+        for (int i = 39; i >= 0; i--) {
+            expected.append(i == 39 ? "?" : "&").append("p").append(99 - i).append("=").append(i);
+        }
+        URL url = URL.parse("http://example.com/?" + query);
+        Assert.assertEquals("http://example.com/" + expected, new CacheKeyBuilder().build(url));
+    }
+
+    @Test
+    public void testOpaque() throws Exception {
+        CacheKeyBuilder builder = new CacheKeyBuilder().denyPrefix("utm_");
+        Assert.assertEquals("mailto:a@b.com", builder.build(URL.parse("mailto:a@b.com")));
+        Assert.assertEquals("mailto:c@d.com", builder.build(URL.parse("mailto:c@d.com#x")));
+        Assert.assertEquals("mailto:a@b.com?b&subject=x", builder.build(URL.parse("mailto:a@b.com?subject=x&utm_source=y&b")));
+        Assert.assertEquals("urn:isbn:123", builder.build(URL.parse("urn:isbn:123")));
+    }
+
+    @Test
+    public void testAppendTo() throws Exception {
+        StringBuilder sb = new StringBuilder("key:");
+        new CacheKeyBuilder().appendTo(URL.parse("http://example.com/?b&a"), sb);
+        Assert.assertEquals("key:http://example.com/?a&b", sb.toString());
+    }
+}
@@ -0,0 +1,171 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CrawlFrontierTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testPoliteness() throws Exception {
+        AtomicLong now = new AtomicLong(-5000 * MILLI);
+        CrawlFrontier frontier = new CrawlFrontier(0, 100, 4, now::get);
+        frontier.add(URL.parse("http://a.com/1"));
+        frontier.add(URL.parse("http://a.com:80/2"));
+        frontier.add(URL.parse("http://b.com/1"));
+        frontier.add(URL.parse("https://a.com/1"));
+        Assert.assertEquals(4, frontier.size());
+        Assert.assertEquals(3, frontier.hostCount());
+
+        Set<String> first = new HashSet<>();
+        URL url;
+        while ((url = frontier.poll()) != null) {
+            first.add(url.toString());
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("http://a.com/1", "http://b.com/1", "https://a.com/1")), first);
+        Assert.assertEquals(1, frontier.size());
+
+        // a.com is still being fetched, then has to wait for the delay.
+        frontier.release(URL.parse("http://a.com/1"));
+        Assert.assertNull(frontier.poll());
+        now.addAndGet(99 * MILLI);
+        Assert.assertNull(frontier.poll());
+        now.addAndGet(MILLI);
+        Assert.assertEquals("http://a.com:80/2", frontier.poll().toString());
+        Assert.assertEquals(0, frontier.size());
+
+        // Hosts without URLs are remembered until their delay has passed.
+        frontier.release(URL.parse("http://a.com/2"), 500);
+        frontier.release(URL.parse("http://b.com/1"));
+        frontier.release(URL.parse("https://a.com/1"));
+        frontier.add(URL.parse("http://a.com/3"));
+        Assert.assertEquals(3, frontier.hostCount());
+        now.addAndGet(100 * MILLI);
+        Assert.assertNull(frontier.poll());
+        Assert.assertEquals(1, frontier.hostCount());
+        now.addAndGet(400 * MILLI);
+        Assert.assertEquals("http://a.com/3", frontier.poll().toString());
+    }
+
+    @Test
+    public void testByRegistrableDomain() throws Exception {
+        CrawlFrontier frontier = CrawlFrontier.byRegistrableDomain(60000);
+        frontier.add(URL.parse("http://www.example.co.uk/"));
+        frontier.add(URL.parse("https://cdn.example.co.uk/"));
+        frontier.add(URL.parse("http://127.0.0.1/"));
+        Assert.assertEquals(2, frontier.hostCount());
+        Assert.assertNotNull(frontier.poll());
+        Assert.assertNotNull(frontier.poll());
+        Assert.assertNull(frontier.poll());
+        Assert.assertNull(frontier.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testInvalidUse() throws Exception {
+        CrawlFrontier frontier = CrawlFrontier.byOrigin(0);
+        try {
+            frontier.add(URL.parse("/relative"));
+            Assert.fail("expected a url without host to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            frontier.release(URL.parse("http://a.com/"));
+            Assert.fail("expected a release of a host not being fetched to be rejected");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testConcurrentFetchers() throws Exception {
+        CrawlFrontier frontier = CrawlFrontier.byOrigin(1);
+        int hosts = 50;
+        int perHost = 20;
+        for (int i = 0; i < perHost; i++) {
+            for (int h = 0; h < hosts; h++) {
+                frontier.add(URL.parse("http://host" + h + ".com/page" + i));
+            }
+        }
+
+        Set<String> fetching = ConcurrentHashMap.newKeySet();
+        List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    URL url;
+                    while ((url = frontier.poll(200, TimeUnit.MILLISECONDS)) != null) {
+                        if (!fetching.add(url.getHost())) {
+                            overlaps.incrementAndGet();
+                        }
+                        fetched.add(url.toString());
+                        fetching.remove(url.getHost());
+                        frontier.release(url);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(0, overlaps.get());
+        Assert.assertEquals(hosts * perHost, fetched.size());
+        Assert.assertEquals(hosts * perHost, new HashSet<>(fetched).size());
+        Assert.assertEquals(0, frontier.size());
+        Assert.assertEquals(0, frontier.hostCount());
+    }
+
+    @Test
+    public void testIdleFetchersWokenByAdd() throws Exception {
+        CrawlFrontier frontier = CrawlFrontier.byOrigin(0);
+        int fetchers = 8;
+        List<URL> polled = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < fetchers; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    URL url = frontier.poll(10, TimeUnit.SECONDS);
+                    if (url != null) {
+                        polled.add(url);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        // Let the fetchers find the frontier empty and wait.
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        for (int h = 0; h < fetchers; h++) {
+            frontier.add(URL.parse("http://host" + h + ".com/"));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(fetchers, polled.size());
+        Assert.assertEquals(fetchers, new HashSet<>(polled).size());
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+}
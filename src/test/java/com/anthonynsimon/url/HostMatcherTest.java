@@ -0,0 +1,143 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class HostMatcherTest {
+
+    @Test
+    public void testDomainRules() throws Exception {
+        HostMatcher matcher = new HostMatcher.Builder()
+                .add("example.com")
+                .add("*.ads.example.net")
+                .add(".tracker.org")
+                .add("Mixed.Case.io.")
+                .build();
+
+        Assert.assertTrue(matcher.matches("example.com"));
+        Assert.assertTrue(matcher.matches("EXAMPLE.com."));
+        Assert.assertFalse(matcher.matches("www.example.com"));
+        Assert.assertFalse(matcher.matches("com"));
+        Assert.assertFalse(matcher.matches("notexample.com"));
+
+        Assert.assertTrue(matcher.matches("x.ads.example.net"));
+        Assert.assertTrue(matcher.matches("a.b.ads.example.net"));
+        Assert.assertFalse(matcher.matches("ads.example.net"));
+
+        Assert.assertTrue(matcher.matches("tracker.org"));
+        Assert.assertTrue(matcher.matches("cdn.tracker.org"));
+        Assert.assertFalse(matcher.matches("tracker.org.evil.com"));
+
+        Assert.assertTrue(matcher.matches("mixed.case.io"));
+        Assert.assertFalse(matcher.matches(""));
+        Assert.assertFalse(matcher.matches("a..example.com"));
+        Assert.assertEquals(4, matcher.size());
+
+        Assert.assertTrue(matcher.matches(URL.parse("https://user@cdn.tracker.org:8443/path")));
+        Assert.assertFalse(matcher.matches(URL.parse("/relative/path")));
+
+        String slice = "GET x.ads.example.net HTTP/1.1";
+        Assert.assertTrue(matcher.matches(slice, 4, 21));
+        Assert.assertFalse(matcher.matches(slice, 6, 21));
+    }
+
+    @Test
+    public void testIPRules() throws Exception {
+        HostMatcher matcher = new HostMatcher.Builder()
+                .addAll(Arrays.asList("192.168.0.1", "10.0.0.0/8", "11.0.0.0/8", "172.16.0.0/12",
+                        "::1", "[2001:db8::]/32", "fe80::/10"))
+                .build();
+
+        Assert.assertTrue(matcher.matches("192.168.0.1"));
+        Assert.assertFalse(matcher.matches("192.168.0.2"));
+        Assert.assertTrue(matcher.matches("10.255.1.2"));
+        Assert.assertTrue(matcher.matches("11.0.0.0"));
+        Assert.assertFalse(matcher.matches("12.0.0.0"));
+        Assert.assertTrue(matcher.matches("172.31.255.255"));
+        Assert.assertFalse(matcher.matches("172.32.0.0"));
+        Assert.assertFalse(matcher.matches("10.0.0"));
+        Assert.assertFalse(matcher.matches("10.0.0.256"));
+
+        Assert.assertTrue(matcher.matches("[::1]"));
+        Assert.assertTrue(matcher.matches("0:0:0:0:0:0:0:1"));
+        Assert.assertFalse(matcher.matches("[::2]"));
+        Assert.assertTrue(matcher.matches("[2001:db8:ffff::1]"));
+        Assert.assertFalse(matcher.matches("[2001:db9::1]"));
+        Assert.assertTrue(matcher.matches("[FE80::abcd]"));
+        Assert.assertFalse(matcher.matches("[fec0::1]"));
+        Assert.assertFalse(matcher.matches("[1:::2]"));
+
+        Assert.assertTrue(matcher.matches(URL.parse("http://10.1.2.3:8080/")));
+        Assert.assertTrue(matcher.matches(URL.parse("http://[::1]:8080/")));
+    }
+
+    @Test
+    public void testInvalidRules() {
+        for (String rule : new String[]{"", "a..b", "10.0.0.0/33", "300.0.0.1", "::1/129", "1:2:3", "example.com/8"}) {
+            try {
+                new HostMatcher.Builder().add(rule).build();
+                Assert.fail("expected rule to be rejected: " + rule);
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesSuffixLoop() {
+        Random random = new Random(42);
+        String[] labels = {"a", "b", "ab", "c", "example", "com", "net", "x-y"};
+        Set<String> exact = new HashSet<>();
+        Set<String> subdomains = new HashSet<>();
+        HostMatcher.Builder builder = new HostMatcher.Builder();
+        for (int i = 0; i < 2000; i++) {
+            String domain = randomDomain(random, labels);
+            if (random.nextBoolean()) {
+                exact.add(domain);
+                builder.add(domain);
+            } else {
+                subdomains.add(domain);
+                builder.add("*." + domain);
+            }
+        }
+        HostMatcher matcher = builder.build();
+
+        for (int i = 0; i < 20000; i++) {
+            String host = randomDomain(random, labels);
+            boolean expected = exact.contains(host);
+            for (int dot = host.indexOf('.'); dot >= 0 && !expected; dot = host.indexOf('.', dot + 1)) {
+                expected = subdomains.contains(host.substring(dot + 1));
+            }
+            Assert.assertEquals(host, expected, matcher.matches(host));
+        }
+    }
+
+    private static String randomDomain(Random random, String[] labels) {
+        int count = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            sb.append(labels[random.nextInt(labels.length)]);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testLiveSwap() {
+        HostMatcher.Live live = new HostMatcher.Live(new HostMatcher.Builder().add("old.com").build());
+        Assert.assertTrue(live.matches("old.com"));
+
+        HostMatcher previous = live.swap(new HostMatcher.Builder().add("new.com").build());
+        Assert.assertTrue(previous.matches("old.com"));
+        Assert.assertFalse(live.matches("old.com"));
+        Assert.assertTrue(live.matches("new.com"));
+        Assert.assertTrue(live.get().matches("new.com"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.InvalidURLReferenceException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LinkExtractorTest {
+
+    private static List<String> extract(String documentURL, String html) throws Exception {
+        List<String> links = new ArrayList<>();
+        new LinkExtractor(URL.parse(documentURL)).extract(html, (url, start, end) -> links.add(url.toString()));
+        return links;
+    }
+
+    @Test
+    public void testAttributes() throws Exception {
+        String html = "<html><body>"
+                + "<a href=\"/about\">About</a>"
+                + "<A HREF='contact.html?lang=en'>Contact</A>"
+                + "<img class=logo src=img/logo.png alt=\"href='/not-a-link'\">"
+                + "<form method=post action=../submit></form>"
+                + "<a name=top>no link</a>"
+                + "</body></html>";
+        Assert.assertEquals(Arrays.asList(
+                "http://example.com/about",
+                "http://example.com/docs/contact.html?lang=en",
+                "http://example.com/docs/img/logo.png",
+                "http://example.com/submit"
+        ), extract("http://example.com/docs/index.html", html));
+    }
+
+    @Test
+    public void testBaseTag() throws Exception {
+        String html = "<head><base href=\"http://cdn.example.com/assets/\"><base href=\"/ignored/\"></head>"
+                + "<a href=\"style.css\"></a><a href=\"/root\"></a>";
+        Assert.assertEquals(Arrays.asList(
+                "http://cdn.example.com/assets/style.css",
+                "http://cdn.example.com/root"
+        ), extract("http://example.com/index.html", html));
+
+        Assert.assertEquals(Arrays.asList("http://example.com/v2/page"),
+                extract("http://example.com/index.html", "<base href=v2/><a href=page>"));
+    }
+
+    @Test
+    public void testTextURLs() throws Exception {
+        String html = "<p>See http://example.org/a?b=1&amp;c=2, or (https://example.net/path).</p>"
+                + "<p>Not a link: ftp://example.com and httpx://example.com</p>";
+        Assert.assertEquals(Arrays.asList(
+                "http://example.org/a?b=1&c=2",
+                "https://example.net/path"
+        ), extract("http://example.com/", html));
+
+        List<String> links = new ArrayList<>();
+        new LinkExtractor(URL.parse("http://example.com/"))
+                .setExtractTextURLs(false)
+                .extract(html, (url, start, end) -> links.add(url.toString()));
+        Assert.assertTrue(links.isEmpty());
+    }
+
+    @Test
+    public void testSkippedContent() throws Exception {
+        String html = "<!-- <a href=\"/commented\"> -- > still a comment -->"
+                + "<!DOCTYPE html>"
+                + "<script>var s = '<a href=\"/scripted\">'; if (a < b) {}</script >"
+                + "<style>a { background: url(http://example.com/bg.png) }</STYLE>"
+                + "<a href=\"/visible\">";
+        Assert.assertEquals(Arrays.asList("http://example.com/visible"), extract("http://example.com/", html));
+    }
+
+    @Test
+    public void testCharacterReferences() throws Exception {
+        String html = "<a href=\"/search?q=a&amp;page=2&#38;x=&#x31;\"><a href=\"  /trimmed \t\">";
+        Assert.assertEquals(Arrays.asList(
+                "http://example.com/search?q=a&page=2&x=1",
+                "http://example.com/trimmed"
+        ), extract("http://example.com/", html));
+        Assert.assertEquals("&unknown; & &#xZZ; <>", LinkExtractor.decodeCharacterReferences("&unknown; & &#xZZ; &lt;&gt;"));
+    }
+
+    @Test
+    public void testOffsets() throws Exception {
+        String html = "<a href=\" /about \">x</a> see http://example.org/, <img src=logo.png>";
+        List<String> raw = new ArrayList<>();
+        new LinkExtractor(URL.parse("http://example.com/"))
+                .extract(html, (url, start, end) -> raw.add(html.substring(start, end)));
+        Assert.assertEquals(Arrays.asList("/about", "http://example.org/", "logo.png"), raw);
+    }
+
+    @Test
+    public void testReaderAndStream() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("<li><a href=\"/page/").append(i).append("\">café ").append(i).append("</a></li>\n");
+        }
+        String html = sb.toString();
+        URL document = URL.parse("http://example.com/");
+
+        List<String> fromString = new ArrayList<>();
+        List<String> fromReader = new ArrayList<>();
+        List<String> fromStream = new ArrayList<>();
+        LinkExtractor extractor = new LinkExtractor(document);
+        extractor.extract(html, (url, start, end) -> fromString.add(url + " " + start + " " + end));
+        extractor.extract(new StringReader(html), (url, start, end) -> fromReader.add(url + " " + start + " " + end));
+        extractor.extract(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8,
+                (url, start, end) -> fromStream.add(url + " " + start + " " + end));
+
+        Assert.assertEquals(2000, fromString.size());
+        Assert.assertEquals(fromString, fromReader);
+        Assert.assertEquals(fromString, fromStream);
+    }
+
+    @Test
+    public void testMalformedLinksAreSkipped() throws Exception {
+        String html = "<a href=\"\"><a href=\"http://[::1\"><a href=\"/ok\"><a href";
+        Assert.assertEquals(Arrays.asList("http://example.com/ok"), extract("http://example.com/", html));
+    }
+
+    @Test(expected = InvalidURLReferenceException.class)
+    public void testRelativeDocumentURL() throws Exception {
+        new LinkExtractor(URL.parse("/relative/path"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Murmur3HasherTest {
+
+    private Object[][] hashCases = {
+            {"", 0L, 0L},
+            {"a", -7591212652331886403L, -5586493512232966275L},
+            {"hello", -1283840835669994617L, 8904305182133925572L},
+            {"http://www.example.com/path?q=1", -6547231094285377511L, -2481338033945000300L},
+    };
+
+    @Test
+    public void testHashMatchesReference() {
+        for (Object[] testCase : hashCases) {
+            Murmur3Hasher hasher = new Murmur3Hasher().putString((String) testCase[0]);
+            hasher.finish();
+            Assert.assertEquals(testCase[1], hasher.high());
+            Assert.assertEquals(testCase[2], hasher.low());
+            Assert.assertEquals(testCase[1], Murmur3Hasher.hash64((String) testCase[0]));
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+        Murmur3Hasher whole = new Murmur3Hasher().putString("http://www.example.com/path?q=1");
+        Murmur3Hasher parts = new Murmur3Hasher()
+                .putString("http://")
+                .putString("xxwww.example.comxx", 2, 17)
+                .putChar('/')
+                .putString("path?q=1");
+        whole.finish();
+        parts.finish();
+        Assert.assertEquals(whole.high(), parts.high());
+        Assert.assertEquals(whole.low(), parts.low());
+    }
+
+    @Test
+    public void testComponentsAreDelimited() {
+        Murmur3Hasher a = new Murmur3Hasher().putComponent("ab").putComponent("c");
+        Murmur3Hasher b = new Murmur3Hasher().putComponent("a").putComponent("bc");
+        Murmur3Hasher c = new Murmur3Hasher().putComponent(null).putComponent("abc");
+        a.finish();
+        b.finish();
+        c.finish();
+        Assert.assertNotEquals(a.high(), b.high());
+        Assert.assertNotEquals(a.high(), c.high());
+    }
+}
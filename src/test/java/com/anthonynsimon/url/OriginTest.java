@@ -0,0 +1,85 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OriginTest {
+
+    @Test
+    public void testGetOrigin() throws Exception {
+        Origin origin = URL.parse("https://user@Example.com/path?q=1#f").getOrigin();
+        Assert.assertEquals("https", origin.getScheme());
+        Assert.assertEquals("example.com", origin.getHost());
+        Assert.assertEquals(443, origin.getPort());
+        Assert.assertEquals("https://example.com", origin.toString());
+
+        Assert.assertEquals("http://example.com:8080", URL.parse("http://example.com:8080/").getOrigin().toString());
+        Assert.assertEquals("http://[::1]", URL.parse("http://[::1]:80/").getOrigin().toString());
+        Assert.assertEquals(-1, URL.parse("gopher://example.com/").getOrigin().getPort());
+        Assert.assertEquals("gopher://example.com", URL.parse("gopher://example.com/").getOrigin().toString());
+
+        Assert.assertNull(URL.parse("mailto:someone@example.com").getOrigin());
+        Assert.assertNull(URL.parse("/relative/path").getOrigin());
+        Assert.assertNull(URL.parse("file:///etc/passwd").getOrigin());
+    }
+
+    @Test
+    public void testEquality() throws Exception {
+        Origin a = URL.parse("https://example.com/a").getOrigin();
+        Origin b = URL.parse("https://example.com:443/b?c").getOrigin();
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+        Assert.assertSame(a, b);
+        Assert.assertSame(a, URL.parse("https://example.com/a").getOrigin());
+
+        Assert.assertNotEquals(a, URL.parse("http://example.com/a").getOrigin());
+        Assert.assertNotEquals(a, URL.parse("https://example.com:8443/a").getOrigin());
+        Assert.assertNotEquals(a, URL.parse("https://www.example.com/a").getOrigin());
+
+        Map<Origin, Integer> counts = new HashMap<>();
+        for (String url : new String[]{"https://example.com/1", "https://example.com:443/2", "http://example.com/3"}) {
+            counts.merge(URL.parse(url).getOrigin(), 1, Integer::sum);
+        }
+        Assert.assertEquals(Integer.valueOf(2), counts.get(a));
+        Assert.assertEquals(2, counts.size());
+    }
+
+    @Test
+    public void testIsSameOrigin() throws Exception {
+        URL url = URL.parse("https://example.com/a");
+        Assert.assertTrue(url.isSameOrigin(URL.parse("https://example.com:443/b")));
+        Assert.assertTrue(url.isSameOrigin(new URLBuilder().setScheme("HTTPS").setHost("EXAMPLE.com").build()));
+        Assert.assertFalse(url.isSameOrigin(URL.parse("http://example.com/a")));
+        Assert.assertFalse(url.isSameOrigin(URL.parse("https://example.com:444/a")));
+        Assert.assertFalse(url.isSameOrigin(URL.parse("https://example.org/a")));
+        Assert.assertFalse(url.isSameOrigin(URL.parse("/a")));
+        Assert.assertFalse(URL.parse("mailto:a@b.c").isSameOrigin(URL.parse("mailto:a@b.c")));
+        Assert.assertFalse(URL.parse("file:///etc/passwd").isSameOrigin(URL.parse("file:///etc/hosts")));
+
+        // Only ASCII letters are compared ignoring case, the same as origins are.
+        URL upper = new URLBuilder().setScheme("http").setHost("\u00c9xample.com").build();
+        URL lower = new URLBuilder().setScheme("http").setHost("\u00e9xample.com").build();
+        Assert.assertFalse(upper.isSameOrigin(lower));
+        Assert.assertEquals(upper.getOrigin().equals(lower.getOrigin()), upper.isSameOrigin(lower));
+        Assert.assertEquals("\u00c9xample.com", upper.getOrigin().getHost());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Origin origin = URL.parse("https://example.com:8443/").getOrigin();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(origin);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertSame(origin, in.readObject());
+        }
+    }
+}
@@ -157,6 +157,31 @@ public class PathResolverTest {
         }
     }
 
+    @Test
+    public void testResolveReturnsCleanPathAsIs() throws Exception {
+        String path = "/some/clean/path.html";
+        Assert.assertSame(path, PathResolver.resolve(path, ""));
+        Assert.assertSame(path, PathResolver.resolve("/other", path));
+        Assert.assertEquals("/some/.hidden/..file", PathResolver.resolve("/some/.hidden/..file", ""));
+        Assert.assertEquals("/some/path", PathResolver.resolve("/some/path/", ""));
+        Assert.assertEquals("/some/", PathResolver.resolve("/some/path/..", ""));
+    }
+
+    @Test
+    public void testRemoveDotSegments() throws Exception {
+        Assert.assertEquals(null, PathResolver.removeDotSegments(null));
+        Assert.assertEquals("", PathResolver.removeDotSegments(""));
+        Assert.assertEquals("/a/b/", PathResolver.removeDotSegments("/a/b/"));
+        Assert.assertEquals("/a//b", PathResolver.removeDotSegments("/a//b"));
+        Assert.assertEquals("/a/c/", PathResolver.removeDotSegments("/a/b/../c/"));
+        Assert.assertEquals("/a/b/", PathResolver.removeDotSegments("/a/./b/."));
+        Assert.assertEquals("/", PathResolver.removeDotSegments("/a/.."));
+        Assert.assertEquals("/", PathResolver.removeDotSegments("/../.."));
+        Assert.assertEquals("/a/g", PathResolver.removeDotSegments("/a/b/c/./../../g"));
+        Assert.assertEquals("mid/6", PathResolver.removeDotSegments("mid/content=5/../6"));
+        Assert.assertEquals("b", PathResolver.removeDotSegments("a/../../b"));
+        Assert.assertEquals("/a/.b/..c", PathResolver.removeDotSegments("/a/.b/..c"));
+    }
 
     private class PathResolveTestCase {
         public String inputBase;
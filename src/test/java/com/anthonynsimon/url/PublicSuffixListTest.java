@@ -0,0 +1,90 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class PublicSuffixListTest {
+
+    @Test
+    public void testBundledList() {
+        PublicSuffixList list = PublicSuffixList.getDefault();
+        String[][] cases = {
+                // hostname, public suffix, registrable domain
+                {"example.com", "com", "example.com"},
+                {"www.example.com", "com", "example.com"},
+                {"WWW.Example.COM", "COM", "Example.COM"},
+                {"com", "com", null},
+                {"www.example.co.uk", "co.uk", "example.co.uk"},
+                {"co.uk", "co.uk", null},
+                {"a.b.example.github.io", "github.io", "example.github.io"},
+                {"localhost", "localhost", null},
+                {"example.unknowntld", "unknowntld", "example.unknowntld"},
+                // Wildcard and exception rules: *.ck and !www.ck
+                {"a.b.ck", "b.ck", "a.b.ck"},
+                {"www.ck", "ck", "www.ck"},
+                {"sub.www.ck", "ck", "www.ck"},
+                // *.kawasaki.jp and !city.kawasaki.jp
+                {"foo.bar.kawasaki.jp", "bar.kawasaki.jp", "foo.bar.kawasaki.jp"},
+                {"city.kawasaki.jp", "kawasaki.jp", "city.kawasaki.jp"},
+                {"食狮.公司.cn", "公司.cn", "食狮.公司.cn"},
+                {"192.168.0.1", null, null},
+                {"[::1]", null, null},
+                {"example.com.", null, null},
+                {"a..com", null, null},
+                {"", null, null},
+        };
+        for (String[] testCase : cases) {
+            Assert.assertEquals(testCase[0], testCase[1], list.getPublicSuffix(testCase[0]));
+            Assert.assertEquals(testCase[0], testCase[2], list.getRegistrableDomain(testCase[0]));
+        }
+        Assert.assertNull(list.getPublicSuffix(null));
+    }
+
+    @Test
+    public void testCompile() {
+        PublicSuffixList list = PublicSuffixList.compile(Arrays.asList(
+                "// comment",
+                "",
+                "test",
+                "co.test   trailing text is ignored",
+                "*.wild.test",
+                "!keep.wild.test"
+        ));
+        Assert.assertEquals("co.test", list.getPublicSuffix("a.b.co.test"));
+        Assert.assertEquals("b.co.test", list.getRegistrableDomain("a.b.co.test"));
+        Assert.assertEquals("x.wild.test", list.getPublicSuffix("a.x.wild.test"));
+        Assert.assertEquals("wild.test", list.getPublicSuffix("a.keep.wild.test"));
+        Assert.assertEquals("keep.wild.test", list.getRegistrableDomain("a.keep.wild.test"));
+        Assert.assertEquals("other", list.getPublicSuffix("example.other"));
+    }
+
+    @Test
+    public void testPunycode() throws Exception {
+        PublicSuffixList list = PublicSuffixList.getDefault();
+        // '\u516c\u53f8.cn' is xn--55qx5d.cn and '\u4e2d\u56fd' is xn--fiqs8s.
+        Assert.assertEquals("xn--55qx5d.cn", list.getPublicSuffix("www.example.xn--55qx5d.cn"));
+        Assert.assertEquals("example.xn--55qx5d.cn", list.getRegistrableDomain("www.example.xn--55qx5d.cn"));
+        Assert.assertEquals("\u516c\u53f8.cn", list.getPublicSuffix("example.\u516c\u53f8.cn"));
+        Assert.assertEquals("xn--fiqs8s", list.getPublicSuffix("example.xn--fiqs8s"));
+        Assert.assertEquals("example.xn--fiqs8s", URL.parse("http://www.example.xn--fiqs8s/").getRegistrableDomain());
+
+        PublicSuffixList compiled = PublicSuffixList.compile(Arrays.asList("test", "*.\u00e9t\u00e9.test"));
+        Assert.assertEquals("b.xn--t-9fab.test", compiled.getPublicSuffix("a.b.xn--t-9fab.test"));
+        Assert.assertEquals("a.b.xn--t-9fab.test", compiled.getRegistrableDomain("a.b.xn--t-9fab.test"));
+        // Labels that are not valid punycode are matched as they are.
+        Assert.assertEquals("test", compiled.getPublicSuffix("a.xn--.test"));
+    }
+
+    @Test
+    public void testURL() throws Exception {
+        URL url = URL.parse("https://user@www.example.co.uk:8080/path");
+        Assert.assertEquals("co.uk", url.getPublicSuffix());
+        Assert.assertEquals("example.co.uk", url.getRegistrableDomain());
+
+        url = URL.parse("/relative/path");
+        Assert.assertNull(url.getPublicSuffix());
+        Assert.assertNull(url.getRegistrableDomain());
+    }
+}
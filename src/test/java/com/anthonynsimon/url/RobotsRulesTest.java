@@ -0,0 +1,92 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class RobotsRulesTest {
+
+    private static final String ROBOTS = "\uFEFFUser-agent: *\n" +
+            "Disallow: /private/\n" +
+            "Allow: /private/public\n" +
+            "Disallow: /*.pdf$\n" +
+            "Disallow: /search?*q=\n" +
+            "Crawl-delay: 2.5\n" +
+            "\n" +
+            "# Rules for our crawler\r\n" +
+            "user-agent: MyBot\r\n" +
+            "USER-AGENT: OtherBot/2.0\r\n" +
+            "disallow: /tmp # trailing comment\r\n" +
+            "allow: /tmp/ok$\r\n" +
+            "disallow: /*/drafts/*/edit\r\n" +
+            "disallow: /caf\u00e9\r\n" +
+            "\r\n" +
+            "User-agent: mybot\n" +
+            "Disallow: /merged\n" +
+            "Disallow:\n" +
+            "Sitemap: https://example.com/sitemap.xml\n";
+
+    @Test
+    public void testWildcardGroup() throws Exception {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "SomeCrawler/1.0");
+        Assert.assertEquals(4, rules.size());
+        Assert.assertEquals(2500, rules.getCrawlDelayMillis());
+        Assert.assertEquals(Arrays.asList("https://example.com/sitemap.xml"), rules.getSitemaps());
+
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/")));
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/private/data")));
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/private/public/page")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/docs/file.pdf")));
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/docs/file.pdf?download=1")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/search?lang=en&q=x")));
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/search?lang=en")));
+        Assert.assertTrue(rules.isAllowed("/robots.txt"));
+        Assert.assertFalse(rules.isAllowed("/private/robots.txt"));
+    }
+
+    @Test
+    public void testAgentGroup() throws Exception {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "mybot/3.1 (+https://mybot.example)");
+        Assert.assertEquals(5, rules.size());
+        Assert.assertEquals(-1, rules.getCrawlDelayMillis());
+
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/private/data")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/tmp/x")));
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/tmp/ok")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/tmp/ok/more")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/merged/page")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/a/drafts/b/edit")));
+        Assert.assertTrue(rules.isAllowed(URL.parse("http://example.com/a/drafts/b/view")));
+        Assert.assertFalse(rules.isAllowed(URL.parse("http://example.com/caf%C3%A9/menu")));
+
+        Assert.assertEquals(4, RobotsRules.parse(ROBOTS, "OtherBot").size());
+    }
+
+    @Test
+    public void testPrecedence() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nAllow: /page\nDisallow: /*.php$\nDisallow: /page\nAllow: /$\nDisallow: /", "bot");
+        Assert.assertTrue(rules.isAllowed("/"));
+        Assert.assertFalse(rules.isAllowed("/index.html"));
+        // Same length, allow wins.
+        Assert.assertTrue(rules.isAllowed("/page"));
+        // '/*.php$' is longer than '/page'.
+        Assert.assertFalse(rules.isAllowed("/page.php"));
+    }
+
+    @Test
+    public void testNoRules() {
+        Assert.assertTrue(RobotsRules.parse("", "bot").isAllowed("/anything"));
+        Assert.assertTrue(RobotsRules.parse("User-agent: other\nDisallow: /", "bot").isAllowed("/anything"));
+        Assert.assertTrue(RobotsRules.ALLOW_ALL.isAllowed("/anything"));
+        Assert.assertFalse(RobotsRules.DISALLOW_ALL.isAllowed("/anything"));
+        Assert.assertTrue(RobotsRules.DISALLOW_ALL.isAllowed("/robots.txt"));
+        try {
+            RobotsRules.parse("", "/1.0");
+            Assert.fail("expected a user agent without a product token to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
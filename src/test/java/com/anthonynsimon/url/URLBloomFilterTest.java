@@ -0,0 +1,100 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class URLBloomFilterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutAndMightContain() throws Exception {
+        URLBloomFilter filter = URLBloomFilter.create(1000, 0.01);
+        URL url = URL.parse("http://www.example.com/path?q=1");
+
+        Assert.assertFalse(filter.mightContain(url));
+        Assert.assertTrue(filter.put(url));
+        Assert.assertTrue(filter.mightContain(url));
+        Assert.assertFalse(filter.put(url));
+        Assert.assertTrue(filter.mightContain(URL.parse("http://www.EXAMPLE.com/path?q=1")));
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        URLBloomFilter filter = URLBloomFilter.create(10000, 0.01);
+        for (long i = 0; i < 10000; i++) {
+            filter.put(Murmur3Hasher.fmix64(i));
+        }
+        for (long i = 0; i < 10000; i++) {
+            Assert.assertTrue(filter.mightContain(Murmur3Hasher.fmix64(i)));
+        }
+        int falsePositives = 0;
+        for (long i = 10000; i < 110000; i++) {
+            if (filter.mightContain(Murmur3Hasher.fmix64(i))) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue("false positives: " + falsePositives, falsePositives < 2500);
+    }
+
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        Path file = folder.newFile("seen.bloom").toPath();
+        URLBloomFilter filter = URLBloomFilter.create(1000, 0.01);
+        filter.put(URL.parse("http://www.example.com/a"));
+        filter.writeTo(file);
+
+        URLBloomFilter opened = URLBloomFilter.open(file);
+        Assert.assertEquals(filter.bitSize(), opened.bitSize());
+        Assert.assertEquals(filter.hashCount(), opened.hashCount());
+        Assert.assertTrue(opened.mightContain(URL.parse("http://www.example.com/a")));
+        Assert.assertFalse(opened.mightContain(URL.parse("http://www.example.com/b")));
+
+        opened.put(URL.parse("http://www.example.com/b"));
+        opened.flush();
+        Assert.assertTrue(URLBloomFilter.open(file).mightContain(URL.parse("http://www.example.com/b")));
+    }
+
+    @Test
+    public void testWriteToOpenedFile() throws Exception {
+        Path file = folder.newFile("seen.bloom").toPath();
+        URLBloomFilter.create(1000, 0.01).writeTo(file);
+        URLBloomFilter opened = URLBloomFilter.open(file);
+        opened.put(URL.parse("http://www.example.com/a"));
+        opened.writeTo(file);
+        opened.put(URL.parse("http://www.example.com/b"));
+        opened.writeTo(file);
+        Assert.assertTrue(opened.mightContain(URL.parse("http://www.example.com/a")));
+
+        // Replacing a file that another filter has mapped.
+        URLBloomFilter.create(1000, 0.01).writeTo(file);
+        Assert.assertTrue(opened.mightContain(URL.parse("http://www.example.com/b")));
+        URLBloomFilter reopened = URLBloomFilter.open(file);
+        Assert.assertFalse(reopened.mightContain(URL.parse("http://www.example.com/a")));
+
+        opened.writeTo(file);
+        reopened = URLBloomFilter.open(file);
+        Assert.assertTrue(reopened.mightContain(URL.parse("http://www.example.com/a")));
+        Assert.assertTrue(reopened.mightContain(URL.parse("http://www.example.com/b")));
+        Assert.assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenInvalidFile() throws Exception {
+        Path file = folder.newFile("invalid.bloom").toPath();
+        Files.write(file, new byte[]{1, 2, 3});
+        URLBloomFilter.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFalsePositiveRate() {
+        URLBloomFilter.create(1000, 1.5);
+    }
+}
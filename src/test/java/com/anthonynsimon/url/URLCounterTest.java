@@ -0,0 +1,116 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class URLCounterTest {
+
+    @Test
+    public void testByURL() throws Exception {
+        URLCounter counter = URLCounter.byURL();
+        Assert.assertEquals(1, counter.increment(URL.parse("http://example.com/a")));
+        Assert.assertEquals(2, counter.increment(URL.parse("http://example.com/a")));
+        Assert.assertEquals(1, counter.increment(URL.parse("http://example.com/b")));
+        Assert.assertEquals(2, counter.count(URL.parse("http://example.com/a")));
+        Assert.assertEquals(0, counter.count(URL.parse("http://example.com/c")));
+        Assert.assertEquals(2, counter.size());
+    }
+
+    @Test
+    public void testByHost() throws Exception {
+        URLCounter counter = URLCounter.byHost();
+        counter.increment(URL.parse("http://example.com/a"));
+        counter.increment(URL.parse("https://example.com/b?q=1"));
+        counter.add(URL.parse("http://example.com:8080/a"), 5);
+        Assert.assertEquals(2, counter.count(URL.parse("http://example.com")));
+        Assert.assertEquals(5, counter.count(URL.parse("http://example.com:8080")));
+        Assert.assertEquals(counter.key(URL.parse("http://example.com/x")), counter.key(URL.parse("ftp://example.com/y")));
+    }
+
+    @Test
+    public void testByPathPrefix() throws Exception {
+        URLCounter counter = URLCounter.byPathPrefix(2);
+        counter.increment(URL.parse("http://example.com/a/b/c"));
+        counter.increment(URL.parse("http://example.com/a/b/d?q=1"));
+        counter.increment(URL.parse("http://example.com/a/b"));
+        counter.increment(URL.parse("http://example.com/a/b/"));
+        counter.increment(URL.parse("http://example.com/a/c/b"));
+        counter.increment(URL.parse("http://other.com/a/b/c"));
+        Assert.assertEquals(4, counter.count(URL.parse("http://example.com/a/b")));
+        Assert.assertEquals(1, counter.count(URL.parse("http://example.com/a/c")));
+        Assert.assertEquals(1, counter.count(URL.parse("http://other.com/a/b")));
+        Assert.assertEquals(0, counter.count(URL.parse("http://example.com/a")));
+
+        URLCounter hosts = URLCounter.byPathPrefix(0);
+        hosts.increment(URL.parse("http://example.com/a/b/c"));
+        hosts.increment(URL.parse("http://example.com"));
+        Assert.assertEquals(2, hosts.count(URL.parse("http://example.com/")));
+    }
+
+    @Test
+    public void testMergeFrom() throws Exception {
+        URLCounter counter = URLCounter.byHost();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                URLCounter partial = counter.newPartial();
+                for (int i = 0; i < 1000; i++) {
+                    try {
+                        partial.increment(URL.parse("http://host" + (i % 10) + ".com/" + i));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                counter.mergeFrom(partial);
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(10, counter.size());
+        Assert.assertEquals(400, counter.count(URL.parse("http://host3.com")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentKeys() {
+        URLCounter.byHost().mergeFrom(URLCounter.byURL());
+    }
+
+    @Test
+    public void testTopK() throws Exception {
+        URLCounter counter = URLCounter.byHost();
+        for (int i = 0; i < 100; i++) {
+            counter.add(URL.parse("http://host" + i + ".com"), i);
+        }
+        counter.add(0, 1000);
+
+        List<URLCounter.Entry> top = counter.topK(3);
+        Assert.assertEquals(3, top.size());
+        Assert.assertEquals(0, top.get(0).getKey());
+        Assert.assertEquals(1000, top.get(0).getCount());
+        Assert.assertEquals(counter.key(URL.parse("http://host99.com")), top.get(1).getKey());
+        Assert.assertEquals(99, top.get(1).getCount());
+        Assert.assertEquals(98, top.get(2).getCount());
+
+        Assert.assertEquals(101, counter.topK(500).size());
+        Assert.assertTrue(counter.topK(0).isEmpty());
+    }
+
+    @Test
+    public void testManyKeys() {
+        URLCounter counter = URLCounter.byURL().newPartial();
+        for (long i = 1; i <= 100000; i++) {
+            counter.add(i, i);
+        }
+        for (long i = 1; i <= 100000; i++) {
+            Assert.assertEquals(i, counter.count(i));
+        }
+        Assert.assertEquals(100000, counter.size());
+    }
+}
@@ -0,0 +1,138 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.URLFilter.ResourceType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class URLFilterTest {
+
+    private static final URL PAGE = url("https://www.news.com/article/1");
+
+    private static URL url(String str) {
+        try {
+            return URL.parse(str);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static boolean blocks(URLFilter filter, String str) {
+        return filter.shouldBlock(url(str), PAGE, ResourceType.SCRIPT);
+    }
+
+    @Test
+    public void testPatterns() {
+        URLFilter filter = new URLFilter.Builder().addAll(Arrays.asList(
+                "/ads/banner",
+                "||tracker.com^",
+                "|http://exact.com/",
+                ".swf|",
+                "/pixel*.gif",
+                "&adid=",
+                "*/sponsored-*^"
+        )).build();
+
+        Assert.assertTrue(blocks(filter, "http://cdn.com/ads/banner.png"));
+        Assert.assertTrue(blocks(filter, "http://cdn.com/ADS/Banner.png"));
+        Assert.assertFalse(blocks(filter, "http://cdn.com/ads/other.png"));
+
+        Assert.assertTrue(blocks(filter, "https://tracker.com/t.js"));
+        Assert.assertTrue(blocks(filter, "https://eu.tracker.com:8080/t.js"));
+        Assert.assertTrue(blocks(filter, "https://tracker.com"));
+        Assert.assertFalse(blocks(filter, "https://nottracker.com/t.js"));
+        Assert.assertFalse(blocks(filter, "https://tracker.com.evil.net/t.js"));
+        Assert.assertFalse(blocks(filter, "https://cdn.com/?ref=tracker.com"));
+
+        Assert.assertTrue(blocks(filter, "http://exact.com/path"));
+        Assert.assertFalse(blocks(filter, "https://exact.com/path"));
+
+        Assert.assertTrue(blocks(filter, "http://cdn.com/movie.swf"));
+        Assert.assertFalse(blocks(filter, "http://cdn.com/movie.swf?x=1"));
+
+        Assert.assertTrue(blocks(filter, "http://cdn.com/pixel_1x1.gif"));
+        Assert.assertFalse(blocks(filter, "http://cdn.com/pixel_1x1.png"));
+
+        Assert.assertTrue(blocks(filter, "http://cdn.com/page?x=1&adid=5"));
+        Assert.assertTrue(blocks(filter, "http://cdn.com/a/sponsored-box/x"));
+        Assert.assertTrue(blocks(filter, "http://cdn.com/a/sponsored-box"));
+        Assert.assertFalse(blocks(filter, "http://cdn.com/a/sponsored.js"));
+        Assert.assertEquals(7, filter.size());
+    }
+
+    @Test
+    public void testExceptions() {
+        URLFilter filter = new URLFilter.Builder()
+                .add("||ads.example.com^")
+                .add("@@||ads.example.com/allowed/")
+                .build();
+        Assert.assertEquals("||ads.example.com^", filter.match(url("http://ads.example.com/x.js"), PAGE, ResourceType.SCRIPT));
+        Assert.assertNull(filter.match(url("http://ads.example.com/allowed/x.js"), PAGE, ResourceType.SCRIPT));
+    }
+
+    @Test
+    public void testOptions() {
+        URLFilter filter = new URLFilter.Builder().addAll(Arrays.asList(
+                "/widget.js$third-party",
+                "/track.gif$image,~third-party",
+                "/popup$domain=news.com|~sports.news.com",
+                "/CaseSensitive$match-case",
+                "/everything$~script"
+        )).build();
+
+        Assert.assertTrue(filter.shouldBlock(url("https://cdn.other.com/widget.js"), PAGE, ResourceType.SCRIPT));
+        Assert.assertFalse(filter.shouldBlock(url("https://static.news.com/widget.js"), PAGE, ResourceType.SCRIPT));
+        Assert.assertFalse(filter.shouldBlock(url("https://cdn.other.com/widget.js"), null, ResourceType.SCRIPT));
+
+        Assert.assertTrue(filter.shouldBlock(url("https://img.news.com/track.gif"), PAGE, ResourceType.IMAGE));
+        Assert.assertFalse(filter.shouldBlock(url("https://img.news.com/track.gif"), PAGE, ResourceType.SCRIPT));
+        Assert.assertFalse(filter.shouldBlock(url("https://img.other.com/track.gif"), PAGE, ResourceType.IMAGE));
+
+        Assert.assertTrue(filter.shouldBlock(url("https://x.com/popup"), PAGE, ResourceType.OTHER));
+        Assert.assertFalse(filter.shouldBlock(url("https://x.com/popup"), url("https://sports.news.com/"), ResourceType.OTHER));
+        Assert.assertFalse(filter.shouldBlock(url("https://x.com/popup"), url("https://other.com/"), ResourceType.OTHER));
+
+        Assert.assertTrue(filter.shouldBlock(url("https://x.com/CaseSensitive"), PAGE, ResourceType.OTHER));
+        Assert.assertFalse(filter.shouldBlock(url("https://x.com/casesensitive"), PAGE, ResourceType.OTHER));
+
+        Assert.assertTrue(filter.shouldBlock(url("https://x.com/everything"), PAGE, ResourceType.DOCUMENT));
+        Assert.assertFalse(filter.shouldBlock(url("https://x.com/everything"), PAGE, ResourceType.SCRIPT));
+
+        // Rules apply to everything but documents by default.
+        Assert.assertFalse(filter.shouldBlock(url("https://cdn.other.com/widget.js"), PAGE, ResourceType.DOCUMENT));
+    }
+
+    @Test
+    public void testIgnoredLines() {
+        URLFilter.Builder builder = new URLFilter.Builder().addAll(Arrays.asList(
+                "[Adblock Plus 2.0]",
+                "! comment",
+                "",
+                "example.com##.ad",
+                "/^https?:\\/\\/ads/",
+                "/banner$unknown-option",
+                "/valid"
+        ));
+        Assert.assertEquals(6, builder.ignoredCount());
+        Assert.assertEquals(1, builder.build().size());
+    }
+
+    @Test
+    public void testManyRules() {
+        URLFilter.Builder builder = new URLFilter.Builder();
+        for (int i = 0; i < 20000; i++) {
+            builder.add("||host" + i + ".com^");
+            builder.add("/path" + i + "/ad");
+        }
+        builder.add("*");
+        builder.add("@@*");
+        URLFilter filter = builder.build();
+        Assert.assertFalse(blocks(filter, "http://host1234.com/"));
+
+        filter = new URLFilter.Builder().add("|ftp://a").add("ab$image").add("b$document").add("/path123/ad").add("||host77.com^").build();
+        Assert.assertTrue(blocks(filter, "http://host77.com/"));
+        Assert.assertTrue(blocks(filter, "http://z.com/path123/ad"));
+        Assert.assertFalse(blocks(filter, "http://z.com/path124/ad"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class URLFingerprintSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAddAndContains() throws Exception {
+        URLFingerprintSet set = URLFingerprintSet.create(100);
+        URL url = URL.parse("http://www.example.com/path?q=1");
+
+        Assert.assertFalse(set.contains(url));
+        Assert.assertTrue(set.add(url));
+        Assert.assertTrue(set.contains(url));
+        Assert.assertFalse(set.add(url));
+        Assert.assertFalse(set.contains(URL.parse("http://www.example.com/path?q=2")));
+        Assert.assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testZeroFingerprint() {
+        URLFingerprintSet set = URLFingerprintSet.create(100);
+        Assert.assertFalse(set.contains(0));
+        Assert.assertTrue(set.add(0));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertFalse(set.add(0));
+        Assert.assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testManyFingerprints() {
+        URLFingerprintSet set = URLFingerprintSet.create(50000);
+        for (long i = 1; i <= 50000; i++) {
+            Assert.assertTrue(set.add(i * 31));
+        }
+        for (long i = 1; i <= 50000; i++) {
+            Assert.assertTrue(set.contains(i * 31));
+            Assert.assertFalse(set.contains(i * 31 + 1));
+        }
+        Assert.assertEquals(50000, set.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFull() {
+        URLFingerprintSet set = URLFingerprintSet.create(10);
+        for (long i = 1; i <= set.capacity(); i++) {
+            set.add(i);
+        }
+    }
+
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        URLFingerprintSet set = URLFingerprintSet.create(40000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (long i = 1; i <= 40000; i++) {
+                    set.add(i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(40000, set.size());
+    }
+
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        Path file = folder.newFile("seen.set").toPath();
+        URLFingerprintSet set = URLFingerprintSet.create(1000);
+        set.add(URL.parse("http://www.example.com/a"));
+        set.add(0);
+        set.writeTo(file);
+
+        URLFingerprintSet opened = URLFingerprintSet.open(file);
+        Assert.assertEquals(2, opened.size());
+        Assert.assertEquals(set.capacity(), opened.capacity());
+        Assert.assertTrue(opened.contains(URL.parse("http://www.example.com/a")));
+        Assert.assertTrue(opened.contains(0));
+
+        opened.add(URL.parse("http://www.example.com/b"));
+        opened.flush();
+        URLFingerprintSet reopened = URLFingerprintSet.open(file);
+        Assert.assertEquals(3, reopened.size());
+        Assert.assertTrue(reopened.contains(URL.parse("http://www.example.com/b")));
+    }
+
+    @Test
+    public void testWriteToOpenedFile() throws Exception {
+        Path file = folder.newFile("seen.set").toPath();
+        URLFingerprintSet.create(1000).writeTo(file);
+        URLFingerprintSet opened = URLFingerprintSet.open(file);
+        opened.add(URL.parse("http://www.example.com/a"));
+        opened.writeTo(file);
+        opened.add(URL.parse("http://www.example.com/b"));
+        opened.writeTo(file);
+        Assert.assertEquals(2, opened.size());
+
+        // Replacing a file that another set has mapped.
+        URLFingerprintSet.create(1000).writeTo(file);
+        Assert.assertEquals(2, opened.size());
+        Assert.assertEquals(0, URLFingerprintSet.open(file).size());
+
+        opened.writeTo(file);
+        URLFingerprintSet reopened = URLFingerprintSet.open(file);
+        Assert.assertEquals(2, reopened.size());
+        Assert.assertTrue(reopened.contains(URL.parse("http://www.example.com/b")));
+        Assert.assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenInvalidFile() throws Exception {
+        Path file = folder.newFile("invalid.set").toPath();
+        Files.write(file, new byte[]{1, 2, 3});
+        URLFingerprintSet.open(file);
+    }
+}
@@ -0,0 +1,129 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class URLPartitionerTest {
+
+    private static URL url(String str) {
+        try {
+            return URL.parse(str);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Test
+    public void testKeys() {
+        URLPartitioner byHost = new URLPartitioner.Builder(URLPartitioner.Key.HOST).setPartitions(1000).build();
+        Assert.assertEquals(byHost.key(url("http://example.com/a")), byHost.key(url("https://example.com:8443/b?c")));
+        Assert.assertEquals(byHost.key(url("http://example.com/a")),
+                byHost.key(new URLBuilder().setScheme("http").setHost("EXAMPLE.com").build()));
+        Assert.assertNotEquals(byHost.key(url("http://example.com/a")), byHost.key(url("http://www.example.com/a")));
+
+        URLPartitioner byDomain = new URLPartitioner.Builder(URLPartitioner.Key.REGISTRABLE_DOMAIN).setPartitions(1000).build();
+        Assert.assertEquals(byDomain.key(url("http://www.example.co.uk/")), byDomain.key(url("http://cdn.example.co.uk/")));
+        Assert.assertEquals(byDomain.key(url("http://example.co.uk/")), byHost.key(url("http://example.co.uk/")));
+        Assert.assertEquals(byDomain.key(url("http://localhost/")), byHost.key(url("http://localhost/")));
+
+        URLPartitioner byURL = new URLPartitioner.Builder(URLPartitioner.Key.URL).setPartitions(1000).build();
+        Assert.assertEquals(url("http://example.com/a").fingerprint64(), byURL.key(url("http://example.com/a")));
+        Assert.assertNotEquals(byURL.key(url("http://example.com/a")), byURL.key(url("http://example.com/b")));
+
+        try {
+            byHost.partition(url("/relative"));
+            Assert.fail("expected a url without host to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testJumpHash() {
+        int keys = 20000;
+        int[] counts = new int[10];
+        for (int i = 0; i < keys; i++) {
+            long key = Murmur3Hasher.hash64("key" + i);
+            int before = URLPartitioner.jumpHash(key, 10);
+            int after = URLPartitioner.jumpHash(key, 11);
+            Assert.assertTrue(after == before || after == 10);
+            counts[before]++;
+        }
+        for (int count : counts) {
+            Assert.assertEquals(keys / 10, count, keys / 50);
+        }
+        Assert.assertEquals(0, URLPartitioner.jumpHash(42, 1));
+    }
+
+    @Test
+    public void testNodes() {
+        URLPartitioner three = new URLPartitioner.Builder(URLPartitioner.Key.HOST)
+                .addNode("a").addNode("b").addNode("c").build();
+        URLPartitioner two = new URLPartitioner.Builder(URLPartitioner.Key.HOST)
+                .addNode("a").addNode("c").build();
+        int[] counts = new int[3];
+        for (int i = 0; i < 9000; i++) {
+            URL url = url("http://host" + i + ".com/");
+            String node = three.node(url);
+            counts[three.partition(url)]++;
+            if (!node.equals("b")) {
+                Assert.assertEquals(node, two.node(url));
+            }
+        }
+        for (int count : counts) {
+            Assert.assertEquals(3000, count, 300);
+        }
+    }
+
+    @Test
+    public void testWeightedNodes() {
+        URLPartitioner partitioner = new URLPartitioner.Builder(URLPartitioner.Key.URL)
+                .addNode("small", 1).addNode("large", 3).build();
+        URLPartitioner grown = new URLPartitioner.Builder(URLPartitioner.Key.URL)
+                .addNode("small", 1).addNode("large", 3).addNode("new", 4).build();
+        int large = 0;
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            URL url = url("http://example.com/" + i);
+            String node = partitioner.node(url);
+            if (node.equals("large")) {
+                large++;
+            }
+            String grownNode = grown.node(url);
+            if (!grownNode.equals(node)) {
+                Assert.assertEquals("new", grownNode);
+                moved++;
+            }
+        }
+        Assert.assertEquals(7500, large, 300);
+        Assert.assertEquals(5000, moved, 300);
+    }
+
+    @Test
+    public void testInvalidConfigurations() {
+        try {
+            new URLPartitioner.Builder(URLPartitioner.Key.HOST).build();
+            Assert.fail("expected a partitioner without partitions to be rejected");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+        try {
+            new URLPartitioner.Builder(URLPartitioner.Key.HOST).setPartitions(2).addNode("a").build();
+            Assert.fail("expected a partitioner with partitions and nodes to be rejected");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+        try {
+            new URLPartitioner.Builder(URLPartitioner.Key.HOST).addNode("a").addNode("a");
+            Assert.fail("expected a repeated node to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            new URLPartitioner.Builder(URLPartitioner.Key.HOST).addNode("a", 0);
+            Assert.fail("expected a zero weight to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
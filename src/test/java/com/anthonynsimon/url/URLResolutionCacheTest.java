@@ -0,0 +1,58 @@
+package com.anthonynsimon.url;
+
+import com.anthonynsimon.url.exceptions.InvalidURLReferenceException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class URLResolutionCacheTest {
+
+    @Test
+    public void testSharedBaseDirectory() throws Exception {
+        URLResolutionCache cache = new URLResolutionCache(100);
+        URL pageA = URL.parse("http://example.com/docs/a.html");
+        URL pageB = URL.parse("http://example.com/docs/b.html?q=1");
+
+        Assert.assertEquals("http://example.com/docs/about.html", cache.resolve(pageA, "about.html").toString());
+        Assert.assertEquals("http://example.com/docs/about.html", cache.resolve(pageB, "about.html").toString());
+        Assert.assertEquals("http://example.com/contact", cache.resolve(pageA, "/contact").toString());
+        Assert.assertEquals("http://example.com/contact", cache.resolve(pageB, "/contact").toString());
+
+        Assert.assertEquals(2, cache.hitCount());
+        Assert.assertEquals(2, cache.missCount());
+        Assert.assertEquals(0.5, cache.hitRate(), 0.0001);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testKeyDependsOnBase() throws Exception {
+        URLResolutionCache cache = new URLResolutionCache(100);
+        Assert.assertEquals("http://example.com/docs/a.html#top", cache.resolve(URL.parse("http://example.com/docs/a.html"), "#top").toString());
+        Assert.assertEquals("http://example.com/docs/b.html#top", cache.resolve(URL.parse("http://example.com/docs/b.html"), "#top").toString());
+        Assert.assertEquals("http://example.com/other/about", cache.resolve(URL.parse("http://example.com/other/a"), "about").toString());
+        Assert.assertEquals("http://other.com/docs/about", cache.resolve(URL.parse("http://other.com/docs/a"), "about").toString());
+        Assert.assertEquals("https://example.com/docs/about", cache.resolve(URL.parse("https://example.com/docs/a"), "about").toString());
+        Assert.assertEquals("http://user@example.com/docs/about", cache.resolve(URL.parse("http://user@example.com/docs/a"), "about").toString());
+        Assert.assertEquals(0, cache.hitCount());
+        Assert.assertEquals(6, cache.missCount());
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        URLResolutionCache cache = new URLResolutionCache(32);
+        URL base = URL.parse("http://example.com/");
+        for (int i = 0; i < 1000; i++) {
+            cache.resolve(base, "page" + i);
+        }
+        Assert.assertTrue(cache.size() <= 32);
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.missCount());
+        Assert.assertEquals(0, cache.hitRate(), 0.0001);
+    }
+
+    @Test(expected = InvalidURLReferenceException.class)
+    public void testRelativeBase() throws Exception {
+        new URLResolutionCache(10).resolve(URL.parse("/relative"), "about");
+    }
+}
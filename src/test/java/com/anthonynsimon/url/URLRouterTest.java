@@ -0,0 +1,115 @@
+package com.anthonynsimon.url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class URLRouterTest {
+
+    @Test
+    public void testMatch() throws Exception {
+        URLRouter router = new URLRouter.Builder().addAll(Arrays.asList(
+                "/",
+                "/users",
+                "/users/{id}",
+                "/users/new",
+                "/users/{id}/posts/{postId}",
+                "/users/new/posts",
+                "/static/**",
+                "/files/{name}/**"
+        )).build();
+        URLRouter.Match match = router.newMatch();
+
+        Assert.assertEquals(0, router.match("/", match));
+        Assert.assertEquals(1, router.match("/users", match));
+        Assert.assertEquals(-1, router.match("/users/", match));
+        Assert.assertEquals(3, router.match("/users/new", match));
+        Assert.assertEquals(0, match.getVariableCount());
+
+        Assert.assertEquals(2, router.match("/users/42", match));
+        Assert.assertEquals("id", match.getName(0));
+        Assert.assertEquals("42", match.getValue(0));
+        Assert.assertEquals(7, match.getStart(0));
+        Assert.assertEquals(9, match.getEnd(0));
+
+        // Falls back from the static 'new' to the variable when the rest doesn't match.
+        Assert.assertEquals(4, router.match("/users/new/posts/7", match));
+        Assert.assertEquals("new", match.getValue("id"));
+        Assert.assertEquals("7", match.getValue("postId"));
+        Assert.assertNull(match.getValue("other"));
+        Assert.assertEquals(5, router.match("/users/new/posts", match));
+        Assert.assertEquals(-1, router.match("/users/42/posts", match));
+        Assert.assertEquals(-1, match.getRoute());
+
+        Assert.assertEquals(6, router.match("/static/css/site.css", match));
+        Assert.assertEquals(8, match.getWildcardStart());
+        Assert.assertEquals(6, router.match("/static", match));
+        Assert.assertEquals(7, match.getWildcardStart());
+        Assert.assertEquals(7, router.match("/files/a.txt/x/y", match));
+        Assert.assertEquals("a.txt", match.getValue(0));
+        Assert.assertEquals("x/y", match.getPath().subSequence(match.getWildcardStart(), 16).toString());
+
+        Assert.assertEquals(-1, router.match("/users//posts/1", match));
+        Assert.assertEquals(-1, router.match("users", match));
+        Assert.assertEquals(-1, router.match("", match));
+        Assert.assertEquals(2, router.match("GET /users/9 HTTP/1.1", 4, 12, match));
+        Assert.assertEquals("9", match.getValue(0));
+    }
+
+    @Test
+    public void testMatchURL() throws Exception {
+        URLRouter router = new URLRouter.Builder()
+                .add("/")
+                .add("/a%2Fb/{x}")
+                .add("/search")
+                .build();
+        URLRouter.Match match = router.newMatch();
+
+        Assert.assertEquals(0, router.match(URL.parse("http://example.com"), match));
+        Assert.assertEquals(1, router.match(URL.parse("http://example.com/a%2Fb/c%20d?q=1#f"), match));
+        Assert.assertEquals("c%20d", match.getValue(0));
+        Assert.assertEquals(2, router.match(URL.parse("/search?q=x"), match));
+        Assert.assertEquals(2, router.match(new URLBuilder().setScheme("http").setHost("a.com").setPath("search").build(), match));
+    }
+
+    @Test
+    public void testInvalidTemplates() {
+        for (String template : new String[]{"users", "/a/**/b", "/{}", "/{a}/{a}", "/a*", "/x{y}"}) {
+            try {
+                new URLRouter.Builder().add(template);
+                Assert.fail("expected template to be rejected: " + template);
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+        try {
+            new URLRouter.Builder().add("/users/{id}").add("/users/{name}");
+            Assert.fail("expected conflicting templates to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            URLRouter router = new URLRouter.Builder().add("/").build();
+            router.match("/", new URLRouter.Builder().add("/").build().newMatch());
+            Assert.fail("expected a match of another router to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testManyRoutes() {
+        URLRouter.Builder builder = new URLRouter.Builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("/api/v" + (i % 10) + "/resource" + i + "/{id}");
+        }
+        URLRouter router = builder.build();
+        URLRouter.Match match = router.newMatch();
+        Assert.assertEquals(2000, router.size());
+        Assert.assertEquals(1234, router.match("/api/v4/resource1234/abc", match));
+        Assert.assertEquals("/api/v4/resource1234/{id}", router.getTemplate(match.getRoute()));
+        Assert.assertEquals("abc", match.getValue("id"));
+        Assert.assertEquals(-1, router.match("/api/v5/resource1234/abc", match));
+    }
+}